@@ -1,11 +1,13 @@
 package burst.kit.crypto;
 
 
+import burst.kit.crypto.ec.SigningKey;
 import burst.kit.entity.BurstAddress;
 import burst.kit.entity.BurstEncryptedMessage;
 
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 @SuppressWarnings("WeakerAccess")
 abstract class AbstractBurstCrypto implements BurstCrypto {
@@ -28,11 +30,43 @@ abstract class AbstractBurstCrypto implements BurstCrypto {
         return getBurstAddressFromPublic(getPublicKey(privateKey));
     }
 
+    @Override
+    public BurstKeyPair getKeyPair(String passphrase) {
+        return getKeyPair(getPrivateKey(passphrase));
+    }
+
+    @Override
+    public BurstKeyPair getKeyPair(byte[] privateKey) {
+        privateKey = privateKey.clone();
+        SigningKey signingKey = getSigningKey(privateKey);
+        return new BurstKeyPair(privateKey, signingKey, getBurstAddressFromPublic(signingKey.getPublicKey()));
+    }
+
+    @Override
+    public byte[] getSharedSecret(BurstKeyPair myKeyPair, byte[] theirPublicKey) {
+        return getSharedSecret(myKeyPair.getPrivateKeyUnsafe(), theirPublicKey);
+    }
+
     @Override
     public byte[] getSharedSecret(String myPassphrase, byte[] theirPublicKey) {
         return getSharedSecret(getPrivateKey(myPassphrase), theirPublicKey);
     }
 
+    @Override
+    public SigningKey getSigningKey(String passphrase) {
+        return getSigningKey(getPrivateKey(passphrase));
+    }
+
+    @Override
+    public byte[] sign(byte[] message, BurstKeyPair keyPair) {
+        return sign(message, keyPair.getSigningKey());
+    }
+
+    @Override
+    public byte[] sign(String message, BurstKeyPair keyPair) {
+        return sign(stringToBytes(message), keyPair.getSigningKey());
+    }
+
     @Override
     public byte[] sign(byte[] message, String passphrase) {
         return sign(message, getPrivateKey(passphrase));
@@ -53,6 +87,16 @@ abstract class AbstractBurstCrypto implements BurstCrypto {
         return signTransaction(getPrivateKey(passphrase), unsignedTransaction);
     }
 
+    @Override
+    public byte[] signTransaction(BurstKeyPair keyPair, byte[] unsignedTransaction) {
+        return signTransaction(keyPair.getSigningKey(), unsignedTransaction);
+    }
+
+    @Override
+    public boolean[] verifyBatch(List<byte[]> messages, List<byte[]> signatures, List<byte[]> publicKeys) throws IllegalArgumentException {
+        return verifyBatch(messages, signatures, publicKeys, true);
+    }
+
     @Override
     public byte[] aesEncrypt(byte[] plaintext, byte[] signingKey) throws IllegalArgumentException {
         return aesEncrypt(plaintext, signingKey, new byte[32]);
@@ -88,6 +132,16 @@ abstract class AbstractBurstCrypto implements BurstCrypto {
         return aesEncrypt(plaintext, getSharedSecret(myPrivateKey, theirPublicKey), nonce);
     }
 
+    @Override
+    public byte[] aesSharedEncrypt(byte[] plaintext, BurstKeyPair myKeyPair, byte[] theirPublicKey) {
+        return aesSharedEncrypt(plaintext, myKeyPair.getPrivateKeyUnsafe(), theirPublicKey);
+    }
+
+    @Override
+    public byte[] aesSharedEncrypt(byte[] plaintext, BurstKeyPair myKeyPair, byte[] theirPublicKey, byte[] nonce) {
+        return aesSharedEncrypt(plaintext, myKeyPair.getPrivateKeyUnsafe(), theirPublicKey, nonce);
+    }
+
     @Override
     public byte[] aesSharedEncrypt(String plaintext, String myPassphrase, byte[] theirPublicKey) {
         return aesSharedEncrypt(stringToBytes(plaintext), getPrivateKey(myPassphrase), theirPublicKey);
@@ -143,6 +197,16 @@ abstract class AbstractBurstCrypto implements BurstCrypto {
         return aesDecrypt(encrypted, getSharedSecret(myPrivateKey, theirPublicKey), nonce);
     }
 
+    @Override
+    public byte[] aesSharedDecrypt(byte[] encrypted, BurstKeyPair myKeyPair, byte[] theirPublicKey) {
+        return aesSharedDecrypt(encrypted, myKeyPair.getPrivateKeyUnsafe(), theirPublicKey);
+    }
+
+    @Override
+    public byte[] aesSharedDecrypt(byte[] encrypted, BurstKeyPair myKeyPair, byte[] theirPublicKey, byte[] nonce) {
+        return aesSharedDecrypt(encrypted, myKeyPair.getPrivateKeyUnsafe(), theirPublicKey, nonce);
+    }
+
     @Override
     public byte[] aesSharedDecrypt(String encrypted, String myPassphrase, byte[] theirPublicKey) {
         return aesSharedDecrypt(stringToBytes(encrypted), getPrivateKey(myPassphrase), theirPublicKey);
@@ -168,16 +232,31 @@ abstract class AbstractBurstCrypto implements BurstCrypto {
         return encryptBytesMessage(message, getPrivateKey(myPassphrase), theirPublicKey);
     }
 
+    @Override
+    public BurstEncryptedMessage encryptBytesMessage(byte[] message, BurstKeyPair myKeyPair, byte[] theirPublicKey) {
+        return encryptBytesMessage(message, myKeyPair.getPrivateKeyUnsafe(), theirPublicKey);
+    }
+
     @Override
     public BurstEncryptedMessage encryptTextMessage(String message, String myPassphrase, byte[] theirPublicKey) {
         return encryptTextMessage(message, getPrivateKey(myPassphrase), theirPublicKey);
     }
 
+    @Override
+    public BurstEncryptedMessage encryptTextMessage(String message, BurstKeyPair myKeyPair, byte[] theirPublicKey) {
+        return encryptTextMessage(message, myKeyPair.getPrivateKeyUnsafe(), theirPublicKey);
+    }
+
     @Override
     public byte[] decryptMessage(BurstEncryptedMessage message, String myPassphrase, byte[] theirPublicKey) {
         return decryptMessage(message, getPrivateKey(myPassphrase), theirPublicKey);
     }
 
+    @Override
+    public byte[] decryptMessage(BurstEncryptedMessage message, BurstKeyPair myKeyPair, byte[] theirPublicKey) {
+        return decryptMessage(message, myKeyPair.getPrivateKeyUnsafe(), theirPublicKey);
+    }
+
     @Override
     public byte[] calculateGenerationSignature(byte[] lastGenSig, BurstAddress lastGenerator) {
         return calculateGenerationSignature(lastGenSig, lastGenerator.getSignedLongId());
@@ -197,4 +276,19 @@ abstract class AbstractBurstCrypto implements BurstCrypto {
     public BigInteger calculateDeadline(BurstAddress accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion) {
         return calculateDeadline(accountId.getSignedLongId(), nonce, genSig, scoop, baseTarget, pocVersion);
     }
+
+    @Override
+    public long calculateHitUnsigned(BurstAddress accountId, long nonce, byte[] genSig, int scoop, int pocVersion) {
+        return calculateHitUnsigned(accountId.getSignedLongId(), nonce, genSig, scoop, pocVersion);
+    }
+
+    @Override
+    public long calculateHitUnsigned(BurstAddress accountId, long nonce, byte[] genSig, byte[] scoopData) {
+        return calculateHitUnsigned(accountId.getSignedLongId(), nonce, genSig, scoopData);
+    }
+
+    @Override
+    public long calculateDeadlineUnsigned(BurstAddress accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion) {
+        return calculateDeadlineUnsigned(accountId.getSignedLongId(), nonce, genSig, scoop, baseTarget, pocVersion);
+    }
 }
@@ -0,0 +1,233 @@
+package burst.kit.crypto;
+
+import burst.kit.entity.BurstAddress;
+import burst.kit.util.BurstKitUtils;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Generates addresses in bulk, such as pools of deposit addresses, or searches for vanity addresses.
+ *
+ * Addresses are derived in chunks across a {@link ForkJoinPool}. Each thread reuses its own digest and buffers,
+ * and only the public key and address are derived for each passphrase. Use {@link BurstCrypto#getKeyPair(String)}
+ * to get the full key pair of an address when it is needed. The {@link Flowable}s wait for each chunk on a
+ * {@link Scheduler}, not on the subscriber's thread.
+ */
+public class AddressGenerator {
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private static final String RS_ALPHABET = "23456789ABCDEFGHJKLMNPQRSTUVWXYZ-";
+    private static final String RS_FORMAT = "XXXX-XXXX-XXXX-XXXXX";
+
+    private final BurstCrypto burstCrypto;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final Scheduler scheduler;
+    private final ThreadLocal<Deriver> derivers;
+    private final ThreadLocal<SecureRandom> secureRandom = ThreadLocal.withInitial(SecureRandom::new);
+
+    public AddressGenerator() {
+        this(BurstCrypto.getInstance(), ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param burstCrypto The BurstCrypto to derive public keys with
+     * @param pool The pool to derive addresses on
+     * @param chunkSize The number of addresses to derive at once. Results are emitted after each chunk.
+     */
+    public AddressGenerator(BurstCrypto burstCrypto, ForkJoinPool pool, int chunkSize) {
+        this(burstCrypto, pool, chunkSize, Schedulers.io());
+    }
+
+    /**
+     * @param burstCrypto The BurstCrypto to derive public keys with
+     * @param pool The pool to derive addresses on
+     * @param chunkSize The number of addresses to derive at once. Results are emitted after each chunk.
+     * @param scheduler The scheduler the {@link Flowable}s wait for each chunk on
+     */
+    public AddressGenerator(BurstCrypto burstCrypto, ForkJoinPool pool, int chunkSize, Scheduler scheduler) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1, was " + chunkSize);
+        }
+        this.burstCrypto = burstCrypto;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.scheduler = scheduler;
+        this.derivers = ThreadLocal.withInitial(() -> new Deriver(burstCrypto.getSha256()));
+    }
+
+    /**
+     * A passphrase scheme which appends the index to a secret seed, such as "seed 0", "seed 1"...
+     * @param seed The secret seed, which must be long and random as every passphrase can be derived from it
+     * @return The passphrase scheme
+     */
+    public static LongFunction<String> seedScheme(String seed) {
+        Objects.requireNonNull(seed);
+        return index -> seed + " " + Long.toUnsignedString(index);
+    }
+
+    /**
+     * Generate addresses, passing them to the sink in order of index on the calling thread.
+     * @param passphrases The passphrase scheme, which gives the passphrase for each index
+     * @param startIndex The first index
+     * @param count The number of addresses to generate
+     * @param sink Called with each address
+     */
+    public void generate(LongFunction<String> passphrases, long startIndex, long count, Consumer<GeneratedAddress> sink) {
+        for (long done = 0; done < count; done += chunkSize) {
+            generateChunk(passphrases, startIndex + done, (int) Math.min(chunkSize, count - done)).forEach(sink);
+        }
+    }
+
+    /**
+     * Generate addresses, emitting them in order of index. Chunks are only generated as they are requested.
+     * @param passphrases The passphrase scheme, which gives the passphrase for each index
+     * @param startIndex The first index
+     * @param count The number of addresses to generate
+     * @return The addresses
+     */
+    public Flowable<GeneratedAddress> generate(LongFunction<String> passphrases, long startIndex, long count) {
+        long chunks = (count + chunkSize - 1) / chunkSize;
+        return Flowable.rangeLong(0, chunks)
+                .concatMapIterable(chunk -> generateChunk(passphrases, startIndex + chunk * chunkSize, (int) Math.min(chunkSize, count - chunk * chunkSize)), 1)
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * Generate addresses and write them as CSV, one "index,passphrase,address,public key" line per address.
+     * The output contains every passphrase and must be kept as secret as they are.
+     * @param passphrases The passphrase scheme, which gives the passphrase for each index
+     * @param startIndex The first index
+     * @param count The number of addresses to generate
+     * @param writer The writer to write to. It is not closed.
+     * @throws IOException if the writer throws
+     */
+    public void writeCsv(LongFunction<String> passphrases, long startIndex, long count, Writer writer) throws IOException {
+        for (long done = 0; done < count; done += chunkSize) {
+            for (GeneratedAddress address : generateChunk(passphrases, startIndex + done, (int) Math.min(chunkSize, count - done))) {
+                writer.write(Long.toUnsignedString(address.getIndex()));
+                writer.write(',');
+                writer.write(address.getPassphrase());
+                writer.write(',');
+                writer.write(address.getAddress().getFullAddress());
+                writer.write(',');
+                writer.write(burstCrypto.toHexString(address.getPublicKey()));
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Search for vanity addresses by trying random passphrases. Every additional character in the prefix
+     * makes the search 32 times longer.
+     * @param prefix The start of the address, with or without the "BURST-" prefix, such as "BURST-W5YR". Dashes must be included.
+     * @return The vanity addresses found, without end, until the subscription is cancelled. Chunks are only searched
+     * as more addresses are requested. Each has a passphrase of 64 random hex characters.
+     * @throws IllegalArgumentException if the prefix cannot appear in an address
+     */
+    public Flowable<GeneratedAddress> findVanity(String prefix) throws IllegalArgumentException {
+        String rawPrefix = toRawPrefix(prefix);
+        return Flowable.fromCallable(() -> searchChunk(rawPrefix))
+                .repeat()
+                .concatMapIterable(found -> found, 1)
+                .subscribeOn(scheduler);
+    }
+
+    private static String toRawPrefix(String prefix) {
+        String rawPrefix = prefix.toUpperCase(Locale.ENGLISH);
+        String addressPrefix = BurstKitUtils.getAddressPrefix() + "-";
+        if (rawPrefix.startsWith(addressPrefix)) {
+            rawPrefix = rawPrefix.substring(addressPrefix.length());
+        }
+        if (rawPrefix.length() > RS_FORMAT.length()) {
+            throw new IllegalArgumentException("Not a valid address prefix: " + prefix);
+        }
+        for (int i = 0; i < rawPrefix.length(); i++) {
+            char c = rawPrefix.charAt(i);
+            if (RS_ALPHABET.indexOf(c) < 0 || (c == '-') != (RS_FORMAT.charAt(i) == '-')) {
+                throw new IllegalArgumentException("Not a valid address prefix: " + prefix);
+            }
+        }
+        return rawPrefix;
+    }
+
+    private List<GeneratedAddress> searchChunk(String rawPrefix) {
+        return inPool(() -> IntStream.range(0, chunkSize)
+                .parallel()
+                .mapToObj(i -> {
+                    byte[] random = new byte[32];
+                    secureRandom.get().nextBytes(random);
+                    return derivers.get().derive(-1, burstCrypto.toHexString(random));
+                })
+                .filter(address -> address.getAddress().getRawAddress().startsWith(rawPrefix))
+                .collect(Collectors.toList()));
+    }
+
+    private List<GeneratedAddress> generateChunk(LongFunction<String> passphrases, long startIndex, int count) {
+        return inPool(() -> IntStream.range(0, count)
+                .parallel()
+                .mapToObj(i -> derivers.get().derive(startIndex + i, passphrases.apply(startIndex + i)))
+                .collect(Collectors.toList()));
+    }
+
+    private List<GeneratedAddress> inPool(Callable<List<GeneratedAddress>> task) {
+        try {
+            return pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /* The digest and buffers used by one thread to derive addresses */
+    private final class Deriver {
+        private final MessageDigest sha256;
+        private final byte[] privateKey = new byte[32];
+        private final byte[] hash = new byte[32];
+
+        private Deriver(MessageDigest sha256) {
+            this.sha256 = sha256;
+        }
+
+        private GeneratedAddress derive(long index, String passphrase) {
+            try {
+                sha256.update(passphrase.getBytes(StandardCharsets.UTF_8));
+                sha256.digest(privateKey, 0, privateKey.length);
+                byte[] publicKey = burstCrypto.getPublicKey(privateKey);
+                sha256.update(publicKey);
+                sha256.digest(hash, 0, hash.length);
+                long id = 0;
+                for (int i = 7; i >= 0; i--) {
+                    id = id << 8 | (hash[i] & 0xFF);
+                }
+                return new GeneratedAddress(index, passphrase, publicKey, BurstAddress.fromId(id));
+            } catch (DigestException e) {
+                throw new RuntimeException(e.getMessage(), e);
+            } finally {
+                Arrays.fill(privateKey, (byte) 0);
+            }
+        }
+    }
+}
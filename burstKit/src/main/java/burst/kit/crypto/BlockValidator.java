@@ -0,0 +1,265 @@
+package burst.kit.crypto;
+
+import burst.kit.entity.response.Block;
+import burst.kit.service.BurstNodeService;
+import io.reactivex.Flowable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Validates blocks fetched from a node without running a full node, so that a remote node's blocks can be trusted.
+ *
+ * For each block the block bytes are rebuilt and checked against the block's ID, and the block signature is checked
+ * against the generator's public key. When the previous block is also given, the generation signature and
+ * previous block hash are checked against it, which links the blocks into a chain. A block is only valid when it
+ * is linked, so a block is trusted no further than the oldest block it is linked to. The genesis block has no previous
+ * block, so it is never linked and must be trusted by its well known ID. Blocks are validated in parallel across
+ * a {@link ForkJoinPool}.
+ *
+ * The node's block responses do not include the state of Automated Transactions, which is part of the block bytes.
+ * The bytes of a block carrying AT state cannot be rebuilt, so it fails the ID and signature checks.
+ */
+public class BlockValidator {
+    /* The node returns at most 100 blocks per request, one of which is the previous block of the page */
+    private static final int BLOCKS_PER_PAGE = 99;
+
+    private final BurstCrypto burstCrypto;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<MessageDigest> sha256;
+
+    public BlockValidator() {
+        this(BurstCrypto.getInstance(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param burstCrypto The BurstCrypto to hash and verify with
+     * @param pool The pool to validate blocks on
+     */
+    public BlockValidator(BurstCrypto burstCrypto, ForkJoinPool pool) {
+        this.burstCrypto = burstCrypto;
+        this.pool = pool;
+        this.sha256 = ThreadLocal.withInitial(burstCrypto::getSha256);
+    }
+
+    /**
+     * Validate blocks. The previous block of each block is looked up by height among the blocks given,
+     * so the oldest block (and any block after a gap) is not linked, and is at most self valid.
+     * Include the block before the range to be trusted so that every block in the range is linked.
+     * @param blocks The blocks, in any order
+     * @return The result for each block, in the same order as the blocks
+     */
+    public Result[] validate(Block[] blocks) {
+        Map<Integer, Integer> indices = new HashMap<>();
+        for (int i = 0; i < blocks.length; i++) {
+            indices.put(blocks[i].getHeight(), i);
+        }
+        return inPool(() -> {
+            // Each block's hash is needed to check the next block, so hash every block before checking any
+            byte[][] bytes = new byte[blocks.length][];
+            byte[][] hashes = new byte[blocks.length][];
+            IntStream.range(0, blocks.length)
+                    .parallel()
+                    .forEach(i -> {
+                        try {
+                            bytes[i] = getBytes(blocks[i]);
+                            hashes[i] = sha256.get().digest(bytes[i]);
+                        } catch (RuntimeException e) {
+                            // A block missing fields fails its own checks rather than the whole batch
+                        }
+                    });
+            return IntStream.range(0, blocks.length)
+                    .parallel()
+                    .mapToObj(i -> {
+                        Integer previous = blocks[i].getHeight() == 0 ? null : indices.get(blocks[i].getHeight() - 1);
+                        return previous == null
+                                ? validate(blocks[i], bytes[i], hashes[i], null, null)
+                                : validate(blocks[i], bytes[i], hashes[i], blocks[previous], hashes[previous]);
+                    })
+                    .toArray(Result[]::new);
+        });
+    }
+
+    /**
+     * Fetch blocks from a node and validate them, a page at a time. The block before each page is also fetched,
+     * so that every block is linked to its previous block.
+     * @param nodeService The node to fetch blocks from
+     * @param firstIndex The index of the newest block to validate, where 0 is the most recent block
+     * @param lastIndex The index of the oldest block to validate
+     * @return The result for each block, newest first
+     */
+    public Flowable<Result> validate(BurstNodeService nodeService, int firstIndex, int lastIndex) {
+        if (lastIndex < firstIndex) {
+            throw new IllegalArgumentException("Last index must not be less than first index, was " + lastIndex + " < " + firstIndex);
+        }
+        int pages = (lastIndex - firstIndex + BLOCKS_PER_PAGE) / BLOCKS_PER_PAGE;
+        return Flowable.range(0, pages)
+                .concatMapSingle(page -> {
+                    int start = firstIndex + page * BLOCKS_PER_PAGE;
+                    int count = Math.min(lastIndex - start + 1, BLOCKS_PER_PAGE);
+                    return nodeService.getBlocks(start, start + count)
+                            // The extra block is only needed to check the oldest block in the page
+                            .map(blocks -> Arrays.asList(validate(blocks)).subList(0, Math.min(blocks.length, count)));
+                })
+                .concatMapIterable(results -> results);
+    }
+
+    private Result validate(Block block, byte[] bytes, byte[] hash, Block previous, byte[] previousHash) {
+        boolean idValid = hash != null && burstCrypto.hashToId(hash).equals(block.getId());
+        boolean signatureValid = bytes != null && verifySignature(block, bytes);
+        if (previous == null) {
+            return new Result(block, idValid, signatureValid, false, false, false);
+        }
+        boolean generationSignatureValid;
+        try {
+            generationSignatureValid = Arrays.equals(block.getGenerationSignature(),
+                    burstCrypto.calculateGenerationSignature(previous.getGenerationSignature(), previous.getGenerator()));
+        } catch (RuntimeException e) {
+            generationSignatureValid = false;
+        }
+        boolean previousBlockValid = previousHash != null && Objects.equals(block.getPreviousBlock(), previous.getId())
+                && Arrays.equals(block.getPreviousBlockHash(), previousHash);
+        return new Result(block, idValid, signatureValid, true, generationSignatureValid, previousBlockValid);
+    }
+
+    private boolean verifySignature(Block block, byte[] bytes) {
+        byte[] signature = block.getSignature();
+        try {
+            return signature.length == 64 && burstCrypto.verify(signature, Arrays.copyOf(bytes, bytes.length - signature.length), block.getGeneratorPublicKey(), block.getVersion() >= 3);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /* The bytes that the block ID is the hash of, ending with the signature. The genesis block has
+     * no previous block, which is written as 0, and no previous block hash, which is left out. */
+    private static byte[] getBytes(Block block) {
+        int version = block.getVersion();
+        byte[] previousBlockHash = version > 1 && block.getPreviousBlockHash() != null ? block.getPreviousBlockHash() : new byte[0];
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 4 + (version < 3 ? 4 + 4 : 8 + 8) + 4
+                + block.getPayloadHash().length + block.getGeneratorPublicKey().length + block.getGenerationSignature().length
+                + previousBlockHash.length + 8 + block.getSignature().length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(version);
+        buffer.putInt(block.getTimestamp().getTimestamp());
+        buffer.putLong(block.getPreviousBlock() == null ? 0 : block.getPreviousBlock().getSignedLongId());
+        buffer.putInt(block.getTransactions().length);
+        if (version < 3) {
+            buffer.putInt(block.getTotalAmount().toBurst().intValue());
+            buffer.putInt(block.getTotalFee().toBurst().intValue());
+        } else {
+            buffer.putLong(block.getTotalAmount().toPlanck().longValue());
+            buffer.putLong(block.getTotalFee().toPlanck().longValue());
+        }
+        buffer.putInt(block.getPayloadLength());
+        buffer.put(block.getPayloadHash());
+        buffer.put(block.getGeneratorPublicKey());
+        buffer.put(block.getGenerationSignature());
+        buffer.put(previousBlockHash);
+        buffer.putLong(block.getNonce().longValue());
+        buffer.put(block.getSignature());
+        return buffer.array();
+    }
+
+    private Result[] inPool(Callable<Result[]> task) {
+        try {
+            return pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * The result of validating a block
+     */
+    public static final class Result {
+        private final Block block;
+        private final boolean idValid;
+        private final boolean signatureValid;
+        private final boolean linked;
+        private final boolean generationSignatureValid;
+        private final boolean previousBlockValid;
+
+        private Result(Block block, boolean idValid, boolean signatureValid, boolean linked, boolean generationSignatureValid, boolean previousBlockValid) {
+            this.block = block;
+            this.idValid = idValid;
+            this.signatureValid = signatureValid;
+            this.linked = linked;
+            this.generationSignatureValid = generationSignatureValid;
+            this.previousBlockValid = previousBlockValid;
+        }
+
+        public Block getBlock() {
+            return block;
+        }
+
+        /**
+         * @return Whether the hash of the rebuilt block bytes matches the block ID
+         */
+        public boolean isIdValid() {
+            return idValid;
+        }
+
+        /**
+         * @return Whether the block was signed by its generator
+         */
+        public boolean isSignatureValid() {
+            return signatureValid;
+        }
+
+        /**
+         * @return Whether the previous block was available, in which case the chain checks were done
+         */
+        public boolean isLinked() {
+            return linked;
+        }
+
+        /**
+         * @return Whether the generation signature follows from the previous block's, or false if not linked
+         */
+        public boolean isGenerationSignatureValid() {
+            return generationSignatureValid;
+        }
+
+        /**
+         * @return Whether the previous block ID and previous block hash match the previous block, or false if not linked
+         */
+        public boolean isPreviousBlockValid() {
+            return previousBlockValid;
+        }
+
+        /**
+         * @return Whether the block's own checks passed, its ID and signature. This does not show that the block
+         * belongs to the chain, only that its generator signed it.
+         */
+        public boolean isSelfValid() {
+            return idValid && signatureValid;
+        }
+
+        /**
+         * @return Whether the block is linked and the chain checks passed, or false if not linked
+         */
+        public boolean isChainValid() {
+            return linked && generationSignatureValid && previousBlockValid;
+        }
+
+        /**
+         * @return Whether every check passed, which needs the block to be linked
+         */
+        public boolean isValid() {
+            return isSelfValid() && isChainValid();
+        }
+    }
+}
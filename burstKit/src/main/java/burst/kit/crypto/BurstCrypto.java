@@ -1,13 +1,22 @@
 package burst.kit.crypto;
 
+import burst.kit.crypto.ec.SigningKey;
+import burst.kit.crypto.plot.BestDeadline;
+import burst.kit.crypto.plot.DeadlineConsumer;
+import burst.kit.crypto.plot.HitCalculator;
 import burst.kit.entity.BurstAddress;
 import burst.kit.entity.BurstEncryptedMessage;
 import burst.kit.entity.BurstID;
 import burst.kit.entity.BurstValue;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.util.Date;
+import java.util.List;
 
 public interface BurstCrypto {
 
@@ -61,6 +70,20 @@ public interface BurstCrypto {
      */
     BurstAddress getBurstAddressFromPrivate(byte[] privateKey);
 
+    /**
+     * Derive the private key, public key, signing key and address of an account at once
+     * @param passphrase The passphrase of the account
+     * @return The key pair
+     */
+    BurstKeyPair getKeyPair(String passphrase);
+
+    /**
+     * Derive the public key, signing key and address of an account at once
+     * @param privateKey The private key of the account
+     * @return The key pair
+     */
+    BurstKeyPair getKeyPair(byte[] privateKey);
+
     /**
      * Derive the burst address of the public key
      * @param publicKey The public key
@@ -92,6 +115,30 @@ public interface BurstCrypto {
      */
     byte[] getSharedSecret(byte[] myPrivateKey, byte[] theirPublicKey);
 
+    /**
+     * Generate the shared secret between you and someone else
+     * @param myKeyPair Your key pair
+     * @param theirPublicKey Their public key
+     * @return The shared secret between you and them
+     */
+    byte[] getSharedSecret(BurstKeyPair myKeyPair, byte[] theirPublicKey);
+
+    /**
+     * Prepare a private key for signing. Signing with the returned key is faster than signing with
+     * the private key, as the key does not have to be derived again for each signature.
+     * @param passphrase The passphrase to sign with
+     * @return The signing key
+     */
+    SigningKey getSigningKey(String passphrase);
+
+    /**
+     * Prepare a private key for signing. Signing with the returned key is faster than signing with
+     * the private key, as the key does not have to be derived again for each signature.
+     * @param privateKey The private key to sign with
+     * @return The signing key
+     */
+    SigningKey getSigningKey(byte[] privateKey);
+
     /**
      * Generate the signature of a message
      * @param message The message to sign
@@ -108,6 +155,22 @@ public interface BurstCrypto {
      */
     byte[] sign(byte[] message, byte[] privateKey);
 
+    /**
+     * Generate the signature of a message
+     * @param message The message to sign
+     * @param signingKey The signing key to sign with
+     * @return The signature
+     */
+    byte[] sign(byte[] message, SigningKey signingKey);
+
+    /**
+     * Generate the signature of a message
+     * @param message The message to sign
+     * @param keyPair The key pair to sign with
+     * @return The signature
+     */
+    byte[] sign(byte[] message, BurstKeyPair keyPair);
+
     /**
      * Generate the signature of a message
      * @param message The message to sign
@@ -124,6 +187,14 @@ public interface BurstCrypto {
      */
     byte[] sign(String message, byte[] privateKey);
 
+    /**
+     * Generate the signature of a message
+     * @param message The message to sign
+     * @param keyPair The key pair to sign with
+     * @return The signature
+     */
+    byte[] sign(String message, BurstKeyPair keyPair);
+
     /**
      * Sign an unsigned transaction
      * @param passphrase Passphrase to sign with
@@ -140,6 +211,22 @@ public interface BurstCrypto {
      */
     byte[] signTransaction(byte[] privateKey, byte[] unsignedTransaction);
 
+    /**
+     * Sign an unsigned transaction
+     * @param signingKey Signing key to sign with
+     * @param unsignedTransaction The unsigned transaction bytes
+     * @return The signed transaction bytes
+     */
+    byte[] signTransaction(SigningKey signingKey, byte[] unsignedTransaction);
+
+    /**
+     * Sign an unsigned transaction
+     * @param keyPair Key pair to sign with
+     * @param unsignedTransaction The unsigned transaction bytes
+     * @return The signed transaction bytes
+     */
+    byte[] signTransaction(BurstKeyPair keyPair, byte[] unsignedTransaction);
+
     /**
      * Verify is a signature is valid
      * @param signature The signature
@@ -150,6 +237,32 @@ public interface BurstCrypto {
      */
     boolean verify(byte[] signature, byte[] message, byte[] publicKey, boolean enforceCanonical);
 
+    /**
+     * Verify many signatures at once, in parallel across all cores. Each thread reuses its own buffers and digest,
+     * so this is much faster than calling {@link #verify(byte[], byte[], byte[], boolean)} for each signature.
+     * Signatures are required to be canonical.
+     * @param messages The messages that were signed
+     * @param signatures The signatures, one per message
+     * @param publicKeys The public keys of the signees, one per message
+     * @return Whether each signature is valid or not. Signatures that could not be checked, such as because they are
+     * the wrong length, are reported as invalid.
+     * @throws IllegalArgumentException if the lists are not the same size
+     */
+    boolean[] verifyBatch(List<byte[]> messages, List<byte[]> signatures, List<byte[]> publicKeys) throws IllegalArgumentException;
+
+    /**
+     * Verify many signatures at once, in parallel across all cores. Each thread reuses its own buffers and digest,
+     * so this is much faster than calling {@link #verify(byte[], byte[], byte[], boolean)} for each signature.
+     * @param messages The messages that were signed
+     * @param signatures The signatures, one per message
+     * @param publicKeys The public keys of the signees, one per message
+     * @param enforceCanonical Whether to insist that the signatures are canonical
+     * @return Whether each signature is valid or not. Signatures that could not be checked, such as because they are
+     * the wrong length, are reported as invalid.
+     * @throws IllegalArgumentException if the lists are not the same size
+     */
+    boolean[] verifyBatch(List<byte[]> messages, List<byte[]> signatures, List<byte[]> publicKeys, boolean enforceCanonical) throws IllegalArgumentException;
+
     /**
      * Encrypt a message using AES
      * @param plaintext The message to encrypt
@@ -226,6 +339,25 @@ public interface BurstCrypto {
      */
     byte[] aesSharedEncrypt(byte[] plaintext, byte[] myPrivateKey, byte[] theirPublicKey, byte[] nonce);
 
+    /**
+     * Encrypt a message using AES with a shared secret
+     * @param plaintext The message to encrypt
+     * @param myKeyPair Your key pair (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @return The encrypted message
+     */
+    byte[] aesSharedEncrypt(byte[] plaintext, BurstKeyPair myKeyPair, byte[] theirPublicKey);
+
+    /**
+     * Encrypt a message using AES with a shared secret
+     * @param plaintext The message to encrypt
+     * @param myKeyPair Your key pair (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @param nonce The nonce to use for the encryption
+     * @return The encrypted message
+     */
+    byte[] aesSharedEncrypt(byte[] plaintext, BurstKeyPair myKeyPair, byte[] theirPublicKey, byte[] nonce);
+
     /**
      * Encrypt a message using AES using a shared secret
      * @param plaintext The message to encrypt
@@ -302,6 +434,29 @@ public interface BurstCrypto {
      */
     byte[] aesDecrypt(String encrypted, byte[] signingKey, byte[] nonce) throws IllegalArgumentException;
 
+    /**
+     * Derive the AES key that a message is encrypted with. The key and nonce are not modified.
+     * @param signingKey The key used for encryption, such as a shared secret (Must be 32 bytes long!)
+     * @param nonce The nonce used for the encryption
+     * @return The AES key, which is the SHA-256 hash of the key XOR the nonce
+     * @throws IllegalArgumentException if the key is not 32 bytes long
+     */
+    byte[] deriveAesKey(byte[] signingKey, byte[] nonce) throws IllegalArgumentException;
+
+    /**
+     * Choose whether AES encryption and decryption use the JCE "AES/CBC/PKCS5Padding" cipher instead of
+     * Bouncy Castle's software AES. The JCE cipher is much faster where the JVM uses the processor's AES instructions,
+     * but needs a JVM that allows 256 bit AES keys, which is the default since Java 8u161.
+     * Both produce the same output. Bouncy Castle is used by default.
+     * @param jceAesEnabled Whether to use the JCE cipher
+     */
+    void setJceAesEnabled(boolean jceAesEnabled);
+
+    /**
+     * @return Whether the JCE cipher is used for AES, see {@link #setJceAesEnabled(boolean)}
+     */
+    boolean isJceAesEnabled();
+
     /**
      * Encrypt a message using AES using a shared secret
      * @param encrypted The encrypted message
@@ -340,6 +495,25 @@ public interface BurstCrypto {
      */
     byte[] aesSharedDecrypt(byte[] encrypted, byte[] myPrivateKey, byte[] theirPublicKey, byte[] nonce);
 
+    /**
+     * Decrypt a message using AES with a shared secret
+     * @param encrypted The encrypted message
+     * @param myKeyPair Your key pair (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @return The plaintext message
+     */
+    byte[] aesSharedDecrypt(byte[] encrypted, BurstKeyPair myKeyPair, byte[] theirPublicKey);
+
+    /**
+     * Decrypt a message using AES with a shared secret
+     * @param encrypted The encrypted message
+     * @param myKeyPair Your key pair (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @param nonce The nonce used for the encryption
+     * @return The plaintext message
+     */
+    byte[] aesSharedDecrypt(byte[] encrypted, BurstKeyPair myKeyPair, byte[] theirPublicKey, byte[] nonce);
+
     /**
      * Encrypt a message using AES using a shared secret
      * @param encrypted The encrypted message
@@ -396,6 +570,23 @@ public interface BurstCrypto {
      */
     BurstEncryptedMessage encryptBytesMessage(byte[] message, byte[] myPrivateKey, byte[] theirPublicKey);
 
+    /**
+     * Encrypt the bytes as a non-text encrypted message (to be included in a transaction)
+     * @param message The message to encrypt
+     * @param myKeyPair Your key pair (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @return The encrypted message
+     */
+    BurstEncryptedMessage encryptBytesMessage(byte[] message, BurstKeyPair myKeyPair, byte[] theirPublicKey);
+
+    /**
+     * Encrypt the bytes as a non-text encrypted message (to be included in a transaction)
+     * @param message The message to encrypt
+     * @param sharedSecret The shared secret between you and the recipient, from {@link #getSharedSecret(byte[], byte[])}
+     * @return The encrypted message
+     */
+    BurstEncryptedMessage encryptBytesMessage(byte[] message, byte[] sharedSecret);
+
     /**
      * Encrypt the text as a text encrypted message (to be included in a transaction)
      * @param message The message to encrypt
@@ -414,6 +605,23 @@ public interface BurstCrypto {
      */
     BurstEncryptedMessage encryptTextMessage(String message, byte[] myPrivateKey, byte[] theirPublicKey);
 
+    /**
+     * Encrypt the text as a text encrypted message (to be included in a transaction)
+     * @param message The message to encrypt
+     * @param myKeyPair Your key pair (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @return The encrypted message
+     */
+    BurstEncryptedMessage encryptTextMessage(String message, BurstKeyPair myKeyPair, byte[] theirPublicKey);
+
+    /**
+     * Encrypt the text as a text encrypted message (to be included in a transaction)
+     * @param message The message to encrypt
+     * @param sharedSecret The shared secret between you and the recipient, from {@link #getSharedSecret(byte[], byte[])}
+     * @return The encrypted message
+     */
+    BurstEncryptedMessage encryptTextMessage(String message, byte[] sharedSecret);
+
     /**
      * Decrypt an encrypted message (such as one included in a transaction)
      * @param message The encrypted message
@@ -432,6 +640,65 @@ public interface BurstCrypto {
      */
     byte[] decryptMessage(BurstEncryptedMessage message, byte[] myPrivateKey, byte[] theirPublicKey);
 
+    /**
+     * Decrypt an encrypted message (such as one included in a transaction)
+     * @param message The encrypted message
+     * @param myKeyPair Your key pair (for deriving shared secret)
+     * @param theirPublicKey Their public key (for deriving shared secret)
+     * @return The plaintext message
+     */
+    byte[] decryptMessage(BurstEncryptedMessage message, BurstKeyPair myKeyPair, byte[] theirPublicKey);
+
+    /**
+     * Decrypt an encrypted message (such as one included in a transaction)
+     * @param message The encrypted message
+     * @param sharedSecret The shared secret between you and the sender, from {@link #getSharedSecret(byte[], byte[])}
+     * @return The plaintext message
+     */
+    byte[] decryptMessage(BurstEncryptedMessage message, byte[] sharedSecret);
+
+    /**
+     * Compress and encrypt a message from a stream, in the same format as {@link #encryptBytesMessage(byte[], byte[])}.
+     * The message is compressed and encrypted in a single pass through a fixed size buffer, so memory use does not
+     * depend on the size of the message.
+     * @param plaintext The message to encrypt. It is read to the end but not closed.
+     * @param ciphertext The stream to write the encrypted data to. It is not closed.
+     * @param sharedSecret The shared secret between you and the recipient, from {@link #getSharedSecret(byte[], byte[])}
+     * @return The nonce, which is needed along with the encrypted data to decrypt the message
+     * @throws IOException if either stream throws
+     */
+    byte[] encryptMessage(InputStream plaintext, OutputStream ciphertext, byte[] sharedSecret) throws IOException;
+
+    /**
+     * Compress and encrypt a message from a buffer, in the same format as {@link #encryptBytesMessage(byte[], byte[])}.
+     * @param plaintext The message to encrypt, which is the remaining bytes of the buffer. They are consumed.
+     * @param ciphertext The stream to write the encrypted data to. It is not closed.
+     * @param sharedSecret The shared secret between you and the recipient, from {@link #getSharedSecret(byte[], byte[])}
+     * @return The nonce, which is needed along with the encrypted data to decrypt the message
+     * @throws IOException if the stream throws
+     */
+    byte[] encryptMessage(ByteBuffer plaintext, OutputStream ciphertext, byte[] sharedSecret) throws IOException;
+
+    /**
+     * Decrypt and decompress a message to a stream, in a single pass through a fixed size buffer.
+     * @param ciphertext The encrypted data, such as that of a {@link BurstEncryptedMessage}. It is read to the end but not closed.
+     * @param plaintext The stream to write the message to. It is not closed.
+     * @param nonce The nonce of the encrypted message
+     * @param sharedSecret The shared secret between you and the sender, from {@link #getSharedSecret(byte[], byte[])}
+     * @throws IOException if either stream throws, or if the encrypted data is invalid
+     */
+    void decryptMessage(InputStream ciphertext, OutputStream plaintext, byte[] nonce, byte[] sharedSecret) throws IOException;
+
+    /**
+     * Decrypt and decompress a message from a buffer to a stream.
+     * @param ciphertext The encrypted data, which is the remaining bytes of the buffer. They are consumed.
+     * @param plaintext The stream to write the message to. It is not closed.
+     * @param nonce The nonce of the encrypted message
+     * @param sharedSecret The shared secret between you and the sender, from {@link #getSharedSecret(byte[], byte[])}
+     * @throws IOException if the stream throws, or if the encrypted data is invalid
+     */
+    void decryptMessage(ByteBuffer ciphertext, OutputStream plaintext, byte[] nonce, byte[] sharedSecret) throws IOException;
+
     /**
      * Get the Reed-Solomon encoding of a Burst address. Does not include the "BURST-" prefix.
      * @param burstID The Burst ID
@@ -562,6 +829,80 @@ public interface BurstCrypto {
      */
     BigInteger calculateHit(BurstAddress accountId, long nonce, byte[] genSig, byte[] scoopData);
 
+    /**
+     * Calculate the hit (raw value obtained from a scoop) as an unsigned long, which avoids BigInteger arithmetic
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param genSig The generation signature
+     * @param scoop The scoop
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The hit of that scoop, an unsigned value
+     */
+    long calculateHitUnsigned(long accountId, long nonce, byte[] genSig, int scoop, int pocVersion);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop) as an unsigned long, which avoids BigInteger arithmetic
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param genSig The generation signature
+     * @param scoop The scoop
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The hit of that scoop, an unsigned value
+     */
+    long calculateHitUnsigned(BurstAddress accountId, long nonce, byte[] genSig, int scoop, int pocVersion);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop) as an unsigned long, which avoids BigInteger arithmetic
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param genSig The generation signature
+     * @param scoopData The scoop data, usually read from a disk.
+     * @return The hit of that scoop, an unsigned value
+     */
+    long calculateHitUnsigned(long accountId, long nonce, byte[] genSig, byte[] scoopData);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop) as an unsigned long, which avoids BigInteger arithmetic
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param genSig The generation signature
+     * @param scoopData The scoop data, usually read from a disk.
+     * @return The hit of that scoop, an unsigned value
+     */
+    long calculateHitUnsigned(BurstAddress accountId, long nonce, byte[] genSig, byte[] scoopData);
+
+    /**
+     * Get a calculator for hits against one generation signature, which only hashes the generation signature once.
+     * Use this when checking many scoops for the same block. The calculator is not thread safe.
+     * @param genSig The generation signature
+     * @return The hit calculator
+     */
+    HitCalculator getHitCalculator(byte[] genSig);
+
+    /**
+     * Find the best deadline in a buffer of consecutive nonces' scoops, such as a scoop region read from a PoC2 plot file.
+     * The buffer is read from its position to its limit, and its position is not modified.
+     * @param scoops The scoops, 64 bytes each. Must contain at least one scoop.
+     * @param startNonce The nonce of the first scoop in the buffer
+     * @param genSig The generation signature
+     * @param baseTarget The base target
+     * @return The best deadline and the nonce it belongs to. The deadline is an unsigned value.
+     */
+    BestDeadline calculateBestDeadline(ByteBuffer scoops, long startNonce, byte[] genSig, long baseTarget);
+
+    /**
+     * Calculate the deadline of every scoop in a buffer of consecutive nonces' scoops, such as a scoop region
+     * read from a PoC2 plot file, and report those that do not exceed a maximum.
+     * The buffer is read from its position to its limit, and its position is not modified.
+     * @param scoops The scoops, 64 bytes each
+     * @param startNonce The nonce of the first scoop in the buffer
+     * @param genSig The generation signature
+     * @param baseTarget The base target
+     * @param maxDeadline The maximum deadline to report, compared unsigned. Use -1 to report every deadline.
+     * @param consumer Called for every deadline that does not exceed maxDeadline, in nonce order
+     */
+    void calculateDeadlines(ByteBuffer scoops, long startNonce, byte[] genSig, long baseTarget, long maxDeadline, DeadlineConsumer consumer);
+
     /**
      * Calculate the deadline (hit / baseTarget)
      * @param accountId The account ID
@@ -586,6 +927,30 @@ public interface BurstCrypto {
      */
     BigInteger calculateDeadline(BurstAddress accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion);
 
+    /**
+     * Calculate the deadline (hit / baseTarget) as an unsigned long, which avoids BigInteger arithmetic
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param genSig The generation signature
+     * @param scoop The scoop
+     * @param baseTarget The base target
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The deadline of that scoop, an unsigned value
+     */
+    long calculateDeadlineUnsigned(long accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion);
+
+    /**
+     * Calculate the deadline (hit / baseTarget) as an unsigned long, which avoids BigInteger arithmetic
+     * @param accountId The account ID
+     * @param nonce The nonce
+     * @param genSig The generation signature
+     * @param scoop The scoop
+     * @param baseTarget The base target
+     * @param pocVersion The PoC version. If unsure, use 2.
+     * @return The deadline of that scoop, an unsigned value
+     */
+    long calculateDeadlineUnsigned(BurstAddress accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion);
+
     /**
      * TODO javadoc
      * @param atVersion
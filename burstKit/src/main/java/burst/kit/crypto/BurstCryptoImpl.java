@@ -1,9 +1,16 @@
 package burst.kit.crypto;
 
+import burst.kit.crypto.aes.AesCipher;
+import burst.kit.crypto.aes.BouncyCastleAesCipher;
+import burst.kit.crypto.aes.JceAesCipher;
 import burst.kit.crypto.ec.Curve25519;
 import burst.kit.crypto.ec.Curve25519Impl;
+import burst.kit.crypto.ec.SigningKey;
 import burst.kit.crypto.hash.BurstHashProvider;
 import burst.kit.crypto.hash.shabal.Shabal256;
+import burst.kit.crypto.plot.BestDeadline;
+import burst.kit.crypto.plot.DeadlineConsumer;
+import burst.kit.crypto.plot.HitCalculator;
 import burst.kit.crypto.plot.PlotCalculator;
 import burst.kit.crypto.plot.impl.PlotCalculatorImpl;
 import burst.kit.crypto.rs.ReedSolomon;
@@ -12,13 +19,6 @@ import burst.kit.entity.BurstAddress;
 import burst.kit.entity.BurstEncryptedMessage;
 import burst.kit.entity.BurstID;
 import burst.kit.entity.BurstValue;
-import org.bouncycastle.crypto.CipherParameters;
-import org.bouncycastle.crypto.InvalidCipherTextException;
-import org.bouncycastle.crypto.engines.AESEngine;
-import org.bouncycastle.crypto.modes.CBCBlockCipher;
-import org.bouncycastle.crypto.paddings.PaddedBufferedBlockCipher;
-import org.bouncycastle.crypto.params.KeyParameter;
-import org.bouncycastle.crypto.params.ParametersWithIV;
 import org.bouncycastle.jcajce.provider.digest.RIPEMD160;
 import org.bouncycastle.jcajce.provider.digest.SHA256;
 import org.bouncycastle.util.encoders.Hex;
@@ -26,6 +26,8 @@ import org.bouncycastle.util.encoders.Hex;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -35,6 +37,7 @@ import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -43,7 +46,12 @@ class BurstCryptoImpl extends AbstractBurstCrypto {
 
     static final BurstCryptoImpl INSTANCE = new BurstCryptoImpl();
 
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
     private final ThreadLocal<SecureRandom> secureRandom = ThreadLocal.withInitial(SecureRandom::new);
+    private final ThreadLocal<AesContext> bouncyCastleAesContexts = ThreadLocal.withInitial(() -> new AesContext(new BouncyCastleAesCipher(), getSha256()));
+    private final ThreadLocal<AesContext> jceAesContexts = ThreadLocal.withInitial(() -> new AesContext(new JceAesCipher(), getSha256()));
+    private volatile boolean jceAesEnabled;
     private final Curve25519 curve25519;
     private final ReedSolomon reedSolomon;
     private final PlotCalculator plotCalculator;
@@ -131,9 +139,24 @@ class BurstCryptoImpl extends AbstractBurstCrypto {
         return curve25519.sign(message, privateKey);
     }
 
+    @Override
+    public SigningKey getSigningKey(byte[] privateKey) {
+        return curve25519.getSigningKey(privateKey);
+    }
+
+    @Override
+    public byte[] sign(byte[] message, SigningKey signingKey) {
+        return curve25519.sign(message, signingKey);
+    }
+
     @Override
     public byte[] signTransaction(byte[] privateKey, byte[] unsignedTransaction) {
-        byte[] signature = sign(unsignedTransaction, privateKey);
+        return signTransaction(getSigningKey(privateKey), unsignedTransaction);
+    }
+
+    @Override
+    public byte[] signTransaction(SigningKey signingKey, byte[] unsignedTransaction) {
+        byte[] signature = sign(unsignedTransaction, signingKey);
         byte[] signedTransaction = new byte[unsignedTransaction.length];
         System.arraycopy(unsignedTransaction, 0, signedTransaction, 0, unsignedTransaction.length); // Duplicate the transaction
         System.arraycopy(signature, 0, signedTransaction, 96, 64); // Insert the signature
@@ -145,88 +168,91 @@ class BurstCryptoImpl extends AbstractBurstCrypto {
         return curve25519.verify(message, signature, publicKey, enforceCanonical);
     }
 
+    @Override
+    public boolean[] verifyBatch(List<byte[]> messages, List<byte[]> signatures, List<byte[]> publicKeys, boolean enforceCanonical) throws IllegalArgumentException {
+        return curve25519.verifyBatch(messages, signatures, publicKeys, enforceCanonical);
+    }
+
     @Override
     public byte[] aesEncrypt(byte[] plaintext, byte[] signingKey, byte[] nonce) throws IllegalArgumentException {
-        if (signingKey.length != 32) {
-            throw new IllegalArgumentException("Key length must be 32 bytes");
-        }
-        try {
-            for (int i = 0; i < 32; i++) {
-                signingKey[i] ^= nonce[i];
-            }
-            byte[] key = getSha256().digest(signingKey);
-            byte[] iv = new byte[16];
-            secureRandom.get().nextBytes(iv);
-            PaddedBufferedBlockCipher aes = new PaddedBufferedBlockCipher(new CBCBlockCipher(new AESEngine()));
-            CipherParameters ivAndKey = new ParametersWithIV(new KeyParameter(key), iv);
-            aes.init(true, ivAndKey);
-            byte[] output = new byte[aes.getOutputSize(plaintext.length)];
-            int ciphertextLength = aes.processBytes(plaintext, 0, plaintext.length, output, 0);
-            ciphertextLength += aes.doFinal(output, ciphertextLength);
-            byte[] result = new byte[iv.length + ciphertextLength];
-            System.arraycopy(iv, 0, result, 0, iv.length);
-            System.arraycopy(output, 0, result, iv.length, ciphertextLength);
-            return result;
-        } catch (InvalidCipherTextException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
+        AesContext context = getAesContext();
+        AesCipher aes = context.cipher;
+        byte[] iv = newIv();
+        aes.init(true, context.deriveKey(signingKey, nonce), iv);
+        byte[] result = new byte[iv.length + aes.getOutputSize(plaintext.length)];
+        System.arraycopy(iv, 0, result, 0, iv.length);
+        int length = iv.length + aes.update(plaintext, 0, plaintext.length, result, iv.length);
+        length += aes.doFinal(result, length);
+        return length == result.length ? result : Arrays.copyOf(result, length);
     }
 
     @Override
     public byte[] aesDecrypt(byte[] encrypted, byte[] signingKey, byte[] nonce) throws IllegalArgumentException {
-        if (signingKey.length != 32) {
-            throw new IllegalArgumentException("Key length must be 32 bytes");
-        }
-        try {
-            if (encrypted.length < 16 || encrypted.length % 16 != 0) {
-                throw new InvalidCipherTextException("invalid ciphertext"); // TODO
-            }
-            byte[] iv = Arrays.copyOfRange(encrypted, 0, 16);
-            byte[] ciphertext = Arrays.copyOfRange(encrypted, 16, encrypted.length);
-            for (int i = 0; i < 32; i++) {
-                signingKey[i] ^= nonce[i];
-            }
-            byte[] key = getSha256().digest(signingKey);
-            PaddedBufferedBlockCipher aes = new PaddedBufferedBlockCipher(new CBCBlockCipher(new AESEngine()));
-            CipherParameters ivAndKey = new ParametersWithIV(new KeyParameter(key), iv);
-            aes.init(false, ivAndKey);
-            byte[] output = new byte[aes.getOutputSize(ciphertext.length)];
-            int plaintextLength = aes.processBytes(ciphertext, 0, ciphertext.length, output, 0);
-            plaintextLength += aes.doFinal(output, plaintextLength);
-            byte[] result = new byte[plaintextLength];
-            System.arraycopy(output, 0, result, 0, result.length);
-            return result;
-        } catch (InvalidCipherTextException e) {
-            throw new RuntimeException(e.getMessage(), e);
+        AesContext context = getAesContext();
+        byte[] key = context.deriveKey(signingKey, nonce);
+        if (encrypted.length < 32 || encrypted.length % 16 != 0) {
+            throw new IllegalArgumentException("Invalid ciphertext");
         }
+        AesCipher aes = context.cipher;
+        aes.init(false, key, Arrays.copyOf(encrypted, 16));
+        byte[] output = new byte[aes.getOutputSize(encrypted.length - 16)];
+        int length = aes.update(encrypted, 16, encrypted.length - 16, output, 0);
+        length += aes.doFinal(output, length);
+        return length == output.length ? output : Arrays.copyOf(output, length);
+    }
+
+    @Override
+    public byte[] deriveAesKey(byte[] sharedSecret, byte[] nonce) throws IllegalArgumentException {
+        return getAesContext().deriveKey(sharedSecret, nonce);
+    }
+
+    @Override
+    public void setJceAesEnabled(boolean jceAesEnabled) {
+        this.jceAesEnabled = jceAesEnabled;
+    }
+
+    @Override
+    public boolean isJceAesEnabled() {
+        return jceAesEnabled;
+    }
+
+    private AesContext getAesContext() {
+        return (jceAesEnabled ? jceAesContexts : bouncyCastleAesContexts).get();
     }
 
     @Override
     public BurstEncryptedMessage encryptBytesMessage(byte[] message, byte[] myPrivateKey, byte[] theirPublicKey) {
-        return encryptPlainMessage(message, false, myPrivateKey, theirPublicKey);
+        return encryptPlainMessage(message, false, getSharedSecret(myPrivateKey, theirPublicKey));
+    }
+
+    @Override
+    public BurstEncryptedMessage encryptBytesMessage(byte[] message, byte[] sharedSecret) {
+        return encryptPlainMessage(message, false, sharedSecret);
     }
 
     @Override
     public BurstEncryptedMessage encryptTextMessage(String message, byte[] myPrivateKey, byte[] theirPublicKey) {
-        return encryptPlainMessage(stringToBytes(message), true, myPrivateKey, theirPublicKey);
+        return encryptPlainMessage(stringToBytes(message), true, getSharedSecret(myPrivateKey, theirPublicKey));
     }
 
-    private BurstEncryptedMessage encryptPlainMessage(byte[] message, boolean isText, byte[] myPrivateKey, byte[] theirPublicKey) {
+    @Override
+    public BurstEncryptedMessage encryptTextMessage(String message, byte[] sharedSecret) {
+        return encryptPlainMessage(stringToBytes(message), true, sharedSecret);
+    }
+
+    private BurstEncryptedMessage encryptPlainMessage(byte[] message, boolean isText, byte[] sharedSecret) {
         if (message.length == 0) {
             return new BurstEncryptedMessage(new byte[0], new byte[0], isText);
         }
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream(); GZIPOutputStream gzip = new GZIPOutputStream(bos)) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] nonce = newNonce();
+        AesContext context = getAesContext();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(new AesOutputStream(bos, context.cipher, context.deriveKey(sharedSecret, nonce), newIv()), STREAM_BUFFER_SIZE)) {
             gzip.write(message);
-            gzip.flush();
-            gzip.close();
-            byte[] compressedPlaintext = bos.toByteArray();
-            byte[] nonce = new byte[32];
-            secureRandom.get().nextBytes(nonce);
-            byte[] data = aesSharedEncrypt(compressedPlaintext, myPrivateKey, theirPublicKey, nonce);
-            return new BurstEncryptedMessage(data, nonce, isText);
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
+        return new BurstEncryptedMessage(bos.toByteArray(), nonce, isText);
     }
 
     @Override
@@ -234,20 +260,261 @@ class BurstCryptoImpl extends AbstractBurstCrypto {
         if (message.getData().length == 0) {
             return message.getData();
         }
-        byte[] compressedPlaintext = aesSharedDecrypt(message.getData(), myPrivateKey, theirPublicKey, message.getNonce());
-        try (ByteArrayInputStream bis = new ByteArrayInputStream(compressedPlaintext); GZIPInputStream gzip = new GZIPInputStream(bis); ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-            byte[] buffer = new byte[1024];
-            int nRead;
-            while((nRead = gzip.read(buffer, 0, buffer.length)) > 0) {
-                bos.write(buffer, 0, nRead);
-            }
-            bos.flush();
+        return decryptPlainMessage(message, getSharedSecret(myPrivateKey, theirPublicKey));
+    }
+
+    @Override
+    public byte[] decryptMessage(BurstEncryptedMessage message, byte[] sharedSecret) {
+        if (message.getData().length == 0) {
+            return message.getData();
+        }
+        return decryptPlainMessage(message, sharedSecret);
+    }
+
+    private byte[] decryptPlainMessage(BurstEncryptedMessage message, byte[] sharedSecret) {
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            decryptMessage(new ByteArrayInputStream(message.getData()), bos, message.getNonce(), sharedSecret, getAesContext().cipher);
             return bos.toByteArray();
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
     }
 
+    @Override
+    public byte[] encryptMessage(InputStream plaintext, OutputStream ciphertext, byte[] sharedSecret) throws IOException {
+        byte[] nonce = newNonce();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(new AesOutputStream(ciphertext, newAesCipher(), deriveAesKey(sharedSecret, nonce), newIv()), STREAM_BUFFER_SIZE)) {
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            int read;
+            while ((read = plaintext.read(buffer)) != -1) {
+                gzip.write(buffer, 0, read);
+            }
+        }
+        return nonce;
+    }
+
+    @Override
+    public byte[] encryptMessage(ByteBuffer plaintext, OutputStream ciphertext, byte[] sharedSecret) throws IOException {
+        if (!plaintext.hasArray()) {
+            return encryptMessage(new ByteBufferInputStream(plaintext), ciphertext, sharedSecret);
+        }
+        byte[] nonce = newNonce();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(new AesOutputStream(ciphertext, newAesCipher(), deriveAesKey(sharedSecret, nonce), newIv()), STREAM_BUFFER_SIZE)) {
+            gzip.write(plaintext.array(), plaintext.arrayOffset() + plaintext.position(), plaintext.remaining());
+            plaintext.position(plaintext.limit());
+        }
+        return nonce;
+    }
+
+    @Override
+    public void decryptMessage(InputStream ciphertext, OutputStream plaintext, byte[] nonce, byte[] sharedSecret) throws IOException {
+        decryptMessage(ciphertext, plaintext, nonce, sharedSecret, newAesCipher());
+    }
+
+    private void decryptMessage(InputStream ciphertext, OutputStream plaintext, byte[] nonce, byte[] sharedSecret, AesCipher aes) throws IOException {
+        byte[] iv = new byte[16];
+        int ivLength = 0;
+        int read;
+        while (ivLength < iv.length && (read = ciphertext.read(iv, ivLength, iv.length - ivLength)) != -1) {
+            ivLength += read;
+        }
+        if (ivLength == 0) {
+            return; // Empty messages are not encrypted
+        }
+        if (ivLength < iv.length) {
+            throw new IOException("Invalid ciphertext");
+        }
+        aes.init(false, deriveAesKey(sharedSecret, nonce), iv);
+        AesInputStream decrypted = new AesInputStream(ciphertext, aes);
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        try (GZIPInputStream gzip = new GZIPInputStream(decrypted, STREAM_BUFFER_SIZE)) {
+            while ((read = gzip.read(buffer)) != -1) {
+                plaintext.write(buffer, 0, read);
+            }
+            // The GZIP stream stops after its trailer, so read the rest of the ciphertext to check its padding
+            while (decrypted.read(buffer) != -1) {
+                // Discard anything after the trailer
+            }
+        }
+    }
+
+    @Override
+    public void decryptMessage(ByteBuffer ciphertext, OutputStream plaintext, byte[] nonce, byte[] sharedSecret) throws IOException {
+        decryptMessage(new ByteBufferInputStream(ciphertext), plaintext, nonce, sharedSecret);
+    }
+
+    /* The streams get their own cipher, as the caller's streams could use the thread's context while they are open */
+    private AesCipher newAesCipher() {
+        return jceAesEnabled ? new JceAesCipher() : new BouncyCastleAesCipher();
+    }
+
+    private byte[] newNonce() {
+        byte[] nonce = new byte[32];
+        secureRandom.get().nextBytes(nonce);
+        return nonce;
+    }
+
+    private byte[] newIv() {
+        byte[] iv = new byte[16];
+        secureRandom.get().nextBytes(iv);
+        return iv;
+    }
+
+    /* The cipher and digest used by one thread to encrypt and decrypt, so that they are not created for every message */
+    private static final class AesContext {
+        private final AesCipher cipher;
+        private final MessageDigest sha256;
+        private final byte[] keySeed = new byte[32];
+
+        private AesContext(AesCipher cipher, MessageDigest sha256) {
+            this.cipher = cipher;
+            this.sha256 = sha256;
+        }
+
+        /* sha256(sharedSecret XOR nonce), without modifying the shared secret */
+        private byte[] deriveKey(byte[] sharedSecret, byte[] nonce) {
+            if (sharedSecret.length != 32) {
+                throw new IllegalArgumentException("Key length must be 32 bytes");
+            }
+            for (int i = 0; i < 32; i++) {
+                keySeed[i] = (byte) (sharedSecret[i] ^ nonce[i]);
+            }
+            byte[] key = sha256.digest(keySeed);
+            Arrays.fill(keySeed, (byte) 0);
+            return key;
+        }
+    }
+
+    /* Writes the IV and then encrypts everything written to it. Closing it writes
+     * the final block, but does not close the stream it writes to. */
+    private static final class AesOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final AesCipher aes;
+        // Room for a whole chunk, plus the block left over from the last chunk and padding
+        private final byte[] buffer = new byte[STREAM_BUFFER_SIZE + 32];
+        private boolean closed;
+
+        private AesOutputStream(OutputStream out, AesCipher aes, byte[] key, byte[] iv) throws IOException {
+            this.out = out;
+            this.aes = aes;
+            aes.init(true, key, iv);
+            out.write(iv);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int chunk = Math.min(len, STREAM_BUFFER_SIZE);
+                out.write(buffer, 0, aes.update(b, off, chunk, buffer, 0));
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            out.write(buffer, 0, aes.doFinal(buffer, 0));
+            out.flush();
+        }
+    }
+
+    /* Decrypts everything read from the stream after the IV. Closing it does not
+     * close the stream it reads from. */
+    private static final class AesInputStream extends InputStream {
+        private final InputStream in;
+        private final AesCipher aes;
+        private final byte[] input = new byte[STREAM_BUFFER_SIZE];
+        // Room for a whole chunk, plus the block held back from the last chunk
+        private final byte[] output = new byte[STREAM_BUFFER_SIZE + 32];
+        private int position;
+        private int limit;
+        private boolean finished;
+
+        private AesInputStream(InputStream in, AesCipher aes) {
+            this.in = in;
+            this.aes = aes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (position == limit) {
+                if (finished) {
+                    return -1;
+                }
+                position = 0;
+                int read = in.read(input);
+                if (read == -1) {
+                    finished = true;
+                    try {
+                        limit = aes.doFinal(output, 0);
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException(e.getMessage(), e);
+                    }
+                } else {
+                    limit = aes.update(input, 0, read, output, 0);
+                }
+            }
+            len = Math.min(len, limit - position);
+            System.arraycopy(output, position, b, off, len);
+            position += len;
+            return len;
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
     @Override
     public String rsEncode(BurstID burstID) {
         return reedSolomon.encode(burstID.getSignedLongId());
@@ -340,11 +607,41 @@ class BurstCryptoImpl extends AbstractBurstCrypto {
         return plotCalculator.calculateHit(accountId, nonce, genSig, scoopData);
     }
 
+    @Override
+    public long calculateHitUnsigned(long accountId, long nonce, byte[] genSig, int scoop, int pocVersion) {
+        return plotCalculator.calculateHitUnsigned(accountId, nonce, genSig, scoop, pocVersion);
+    }
+
+    @Override
+    public long calculateHitUnsigned(long accountId, long nonce, byte[] genSig, byte[] scoopData) {
+        return plotCalculator.calculateHitUnsigned(accountId, nonce, genSig, scoopData);
+    }
+
+    @Override
+    public HitCalculator getHitCalculator(byte[] genSig) {
+        return plotCalculator.getHitCalculator(genSig);
+    }
+
+    @Override
+    public BestDeadline calculateBestDeadline(ByteBuffer scoops, long startNonce, byte[] genSig, long baseTarget) {
+        return plotCalculator.calculateBestDeadline(scoops, startNonce, genSig, baseTarget);
+    }
+
+    @Override
+    public void calculateDeadlines(ByteBuffer scoops, long startNonce, byte[] genSig, long baseTarget, long maxDeadline, DeadlineConsumer consumer) {
+        plotCalculator.calculateDeadlines(scoops, startNonce, genSig, baseTarget, maxDeadline, consumer);
+    }
+
     @Override
     public BigInteger calculateDeadline(long accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion) {
         return plotCalculator.calculateDeadline(accountId, nonce, genSig, scoop, baseTarget, pocVersion);
     }
 
+    @Override
+    public long calculateDeadlineUnsigned(long accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion) {
+        return plotCalculator.calculateDeadlineUnsigned(accountId, nonce, genSig, scoop, baseTarget, pocVersion);
+    }
+
     private void putLength(int nPages, int length, ByteBuffer buffer) {
         if (nPages * 256 <= 256) {
             buffer.put((byte) length);
@@ -0,0 +1,62 @@
+package burst.kit.crypto;
+
+import burst.kit.crypto.ec.SigningKey;
+import burst.kit.entity.BurstAddress;
+
+/**
+ * The keys and address of an account, derived once from its passphrase or private key.
+ *
+ * Every method of {@link BurstCrypto} that takes a passphrase derives the private key from it again,
+ * and signing derives the public key again. When the same account is used many times, such as to sign
+ * many transactions, get its key pair once using {@link BurstCrypto#getKeyPair(String)} and use that instead.
+ */
+public final class BurstKeyPair {
+    private final byte[] privateKey;
+    private final byte[] publicKey;
+    private final SigningKey signingKey;
+    private final BurstAddress address;
+
+    BurstKeyPair(byte[] privateKey, SigningKey signingKey, BurstAddress address) {
+        this.privateKey = privateKey;
+        this.publicKey = signingKey.getPublicKey();
+        this.signingKey = signingKey;
+        this.address = address;
+    }
+
+    /**
+     * @return The private key
+     */
+    public byte[] getPrivateKey() {
+        return privateKey.clone();
+    }
+
+    /**
+     * @return The public key
+     */
+    public byte[] getPublicKey() {
+        return publicKey.clone();
+    }
+
+    /**
+     * @return The key to sign with
+     */
+    public SigningKey getSigningKey() {
+        return signingKey;
+    }
+
+    /**
+     * @return The address of the account
+     */
+    public BurstAddress getAddress() {
+        return address;
+    }
+
+    byte[] getPrivateKeyUnsafe() {
+        return privateKey;
+    }
+
+    @Override
+    public String toString() {
+        return address.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package burst.kit.crypto;
+
+import burst.kit.entity.BurstAddress;
+
+/**
+ * An address generated by {@link AddressGenerator}, with the passphrase it was derived from
+ */
+public final class GeneratedAddress {
+    private final long index;
+    private final String passphrase;
+    private final byte[] publicKey;
+    private final BurstAddress address;
+
+    GeneratedAddress(long index, String passphrase, byte[] publicKey, BurstAddress address) {
+        this.index = index;
+        this.passphrase = passphrase;
+        this.publicKey = publicKey;
+        this.address = address;
+    }
+
+    /**
+     * @return The index the passphrase was generated for, or -1 if it was generated randomly
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    public String getPassphrase() {
+        return passphrase;
+    }
+
+    public byte[] getPublicKey() {
+        return publicKey.clone();
+    }
+
+    public BurstAddress getAddress() {
+        return address;
+    }
+
+    @Override
+    public String toString() {
+        return address.getFullAddress();
+    }
+}
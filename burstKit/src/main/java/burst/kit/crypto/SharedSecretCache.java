@@ -0,0 +1,209 @@
+package burst.kit.crypto;
+
+import burst.kit.entity.BurstEncryptedMessage;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the shared secrets between your key pairs and other accounts' public keys.
+ *
+ * Deriving a shared secret takes a Curve25519 scalar multiplication, which costs far more than encrypting
+ * or decrypting a typical message. When exchanging many messages with the same accounts, encrypting and
+ * decrypting through this cache derives each shared secret once. The least recently used secrets are evicted
+ * when the cache is full, and evicted secrets are overwritten with zeroes.
+ *
+ * Key pairs are compared by identity, so get the key pair once using {@link BurstCrypto#getKeyPair(String)}
+ * and keep using it. This class is thread safe.
+ */
+public class SharedSecretCache implements AutoCloseable {
+    private final BurstCrypto burstCrypto;
+    private final Map<Key, byte[]> secrets;
+
+    /**
+     * @param capacity The maximum number of shared secrets to keep
+     */
+    public SharedSecretCache(int capacity) {
+        this(BurstCrypto.getInstance(), capacity);
+    }
+
+    /**
+     * @param burstCrypto The BurstCrypto to derive shared secrets and encrypt with
+     * @param capacity The maximum number of shared secrets to keep
+     */
+    public SharedSecretCache(BurstCrypto burstCrypto, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, was " + capacity);
+        }
+        this.burstCrypto = burstCrypto;
+        this.secrets = new LinkedHashMap<Key, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+                if (size() > capacity) {
+                    Arrays.fill(eldest.getValue(), (byte) 0);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the shared secret between you and someone else, deriving it if it is not cached
+     * @param myKeyPair Your key pair
+     * @param theirPublicKey Their public key
+     * @return A copy of the shared secret between you and them
+     */
+    public byte[] getSharedSecret(BurstKeyPair myKeyPair, byte[] theirPublicKey) {
+        Key key = new Key(myKeyPair, theirPublicKey);
+        synchronized (secrets) {
+            byte[] secret = secrets.get(key);
+            if (secret != null) {
+                return secret.clone();
+            }
+        }
+        // Derived outside of the lock so that a miss does not block other threads
+        byte[] secret = burstCrypto.getSharedSecret(myKeyPair, theirPublicKey);
+        synchronized (secrets) {
+            byte[] previous = secrets.put(new Key(myKeyPair, theirPublicKey.clone()), secret.clone());
+            if (previous != null) {
+                Arrays.fill(previous, (byte) 0);
+            }
+        }
+        return secret;
+    }
+
+    /**
+     * Encrypt a message using AES with a cached shared secret
+     * @param plaintext The message to encrypt
+     * @param myKeyPair Your key pair
+     * @param theirPublicKey Their public key
+     * @return The encrypted message
+     */
+    public byte[] aesSharedEncrypt(byte[] plaintext, BurstKeyPair myKeyPair, byte[] theirPublicKey) {
+        return burstCrypto.aesEncrypt(plaintext, getSharedSecret(myKeyPair, theirPublicKey));
+    }
+
+    /**
+     * Encrypt a message using AES with a cached shared secret
+     * @param plaintext The message to encrypt
+     * @param myKeyPair Your key pair
+     * @param theirPublicKey Their public key
+     * @param nonce The nonce to use for the encryption
+     * @return The encrypted message
+     */
+    public byte[] aesSharedEncrypt(byte[] plaintext, BurstKeyPair myKeyPair, byte[] theirPublicKey, byte[] nonce) {
+        return burstCrypto.aesEncrypt(plaintext, getSharedSecret(myKeyPair, theirPublicKey), nonce);
+    }
+
+    /**
+     * Decrypt a message using AES with a cached shared secret
+     * @param encrypted The encrypted message
+     * @param myKeyPair Your key pair
+     * @param theirPublicKey Their public key
+     * @return The plaintext message
+     */
+    public byte[] aesSharedDecrypt(byte[] encrypted, BurstKeyPair myKeyPair, byte[] theirPublicKey) {
+        return burstCrypto.aesDecrypt(encrypted, getSharedSecret(myKeyPair, theirPublicKey));
+    }
+
+    /**
+     * Decrypt a message using AES with a cached shared secret
+     * @param encrypted The encrypted message
+     * @param myKeyPair Your key pair
+     * @param theirPublicKey Their public key
+     * @param nonce The nonce used for the encryption
+     * @return The plaintext message
+     */
+    public byte[] aesSharedDecrypt(byte[] encrypted, BurstKeyPair myKeyPair, byte[] theirPublicKey, byte[] nonce) {
+        return burstCrypto.aesDecrypt(encrypted, getSharedSecret(myKeyPair, theirPublicKey), nonce);
+    }
+
+    /**
+     * Encrypt the bytes as a non-text encrypted message (to be included in a transaction) with a cached shared secret
+     * @param message The message to encrypt
+     * @param myKeyPair Your key pair
+     * @param theirPublicKey Their public key
+     * @return The encrypted message
+     */
+    public BurstEncryptedMessage encryptBytesMessage(byte[] message, BurstKeyPair myKeyPair, byte[] theirPublicKey) {
+        return burstCrypto.encryptBytesMessage(message, getSharedSecret(myKeyPair, theirPublicKey));
+    }
+
+    /**
+     * Encrypt the text as a text encrypted message (to be included in a transaction) with a cached shared secret
+     * @param message The message to encrypt
+     * @param myKeyPair Your key pair
+     * @param theirPublicKey Their public key
+     * @return The encrypted message
+     */
+    public BurstEncryptedMessage encryptTextMessage(String message, BurstKeyPair myKeyPair, byte[] theirPublicKey) {
+        return burstCrypto.encryptTextMessage(message, getSharedSecret(myKeyPair, theirPublicKey));
+    }
+
+    /**
+     * Decrypt an encrypted message (such as one included in a transaction) with a cached shared secret
+     * @param message The encrypted message
+     * @param myKeyPair Your key pair
+     * @param theirPublicKey Their public key
+     * @return The plaintext message
+     */
+    public byte[] decryptMessage(BurstEncryptedMessage message, BurstKeyPair myKeyPair, byte[] theirPublicKey) {
+        return burstCrypto.decryptMessage(message, getSharedSecret(myKeyPair, theirPublicKey));
+    }
+
+    /**
+     * @return The number of shared secrets cached
+     */
+    public int size() {
+        synchronized (secrets) {
+            return secrets.size();
+        }
+    }
+
+    /**
+     * Remove and overwrite every cached shared secret
+     */
+    public void clear() {
+        synchronized (secrets) {
+            for (Iterator<byte[]> iterator = secrets.values().iterator(); iterator.hasNext(); ) {
+                Arrays.fill(iterator.next(), (byte) 0);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #clear()}
+     */
+    @Override
+    public void close() {
+        clear();
+    }
+
+    private static final class Key {
+        private final BurstKeyPair keyPair;
+        private final byte[] theirPublicKey;
+        private final int hashCode;
+
+        private Key(BurstKeyPair keyPair, byte[] theirPublicKey) {
+            this.keyPair = keyPair;
+            this.theirPublicKey = theirPublicKey;
+            this.hashCode = 31 * System.identityHashCode(keyPair) + Arrays.hashCode(theirPublicKey);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return keyPair == other.keyPair && Arrays.equals(theirPublicKey, other.theirPublicKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package burst.kit.crypto.aes;
+
+/**
+ * AES in CBC mode with PKCS#7 padding. An instance can be reused by initializing it again, but is not thread safe.
+ */
+public interface AesCipher {
+    void init(boolean encrypt, byte[] key, byte[] iv);
+    int getOutputSize(int length);
+    int update(byte[] input, int inputOffset, int length, byte[] output, int outputOffset);
+    int doFinal(byte[] output, int outputOffset) throws IllegalArgumentException;
+}
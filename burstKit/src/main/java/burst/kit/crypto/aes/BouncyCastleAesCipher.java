@@ -0,0 +1,37 @@
+package burst.kit.crypto.aes;
+
+import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.modes.CBCBlockCipher;
+import org.bouncycastle.crypto.paddings.PaddedBufferedBlockCipher;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+
+public class BouncyCastleAesCipher implements AesCipher {
+    private final PaddedBufferedBlockCipher aes = new PaddedBufferedBlockCipher(new CBCBlockCipher(new AESEngine()));
+
+    @Override
+    public void init(boolean encrypt, byte[] key, byte[] iv) {
+        aes.init(encrypt, new ParametersWithIV(new KeyParameter(key), iv));
+    }
+
+    @Override
+    public int getOutputSize(int length) {
+        return aes.getOutputSize(length);
+    }
+
+    @Override
+    public int update(byte[] input, int inputOffset, int length, byte[] output, int outputOffset) {
+        return aes.processBytes(input, inputOffset, length, output, outputOffset);
+    }
+
+    @Override
+    public int doFinal(byte[] output, int outputOffset) throws IllegalArgumentException {
+        try {
+            return aes.doFinal(output, outputOffset);
+        } catch (InvalidCipherTextException | DataLengthException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package burst.kit.crypto.aes;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Uses the JCE "AES/CBC/PKCS5Padding" cipher, which the JVM can run using the processor's AES instructions.
+ * PKCS#5 padding is the same as PKCS#7 padding for AES.
+ */
+public class JceAesCipher implements AesCipher {
+    private final Cipher aes;
+
+    public JceAesCipher() {
+        try {
+            this.aes = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void init(boolean encrypt, byte[] key, byte[] iv) {
+        try {
+            aes.init(encrypt ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+        } catch (GeneralSecurityException e) {
+            // Such as if the JVM does not allow 256 bit keys
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int getOutputSize(int length) {
+        return aes.getOutputSize(length);
+    }
+
+    @Override
+    public int update(byte[] input, int inputOffset, int length, byte[] output, int outputOffset) {
+        try {
+            return aes.update(input, inputOffset, length, output, outputOffset);
+        } catch (ShortBufferException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int doFinal(byte[] output, int outputOffset) throws IllegalArgumentException {
+        try {
+            return aes.doFinal(output, outputOffset);
+        } catch (BadPaddingException | IllegalBlockSizeException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        } catch (ShortBufferException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+}
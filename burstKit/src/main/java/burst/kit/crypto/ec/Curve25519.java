@@ -1,10 +1,15 @@
 package burst.kit.crypto.ec;
 
+import java.util.List;
+
 public interface Curve25519 {
     void clampPrivateKey(byte[] privateKey);
     byte[] getPublicKey(byte[] privateKey);
     byte[] getSharedSecret(byte[] privateKey, byte[] publicKey);
 
+    SigningKey getSigningKey(byte[] privateKey);
     byte[] sign(byte[] message, byte[] privateKey);
+    byte[] sign(byte[] message, SigningKey signingKey);
     boolean verify(byte[] message, byte[] signature, byte[] publicKey, boolean enforceCanonical);
+    boolean[] verifyBatch(List<byte[]> messages, List<byte[]> signatures, List<byte[]> publicKeys, boolean enforceCanonical);
 }
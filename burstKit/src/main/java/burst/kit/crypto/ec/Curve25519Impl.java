@@ -1,15 +1,18 @@
 package burst.kit.crypto.ec;
 
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.util.Arrays;
+import java.util.List;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 public class Curve25519Impl implements Curve25519 {
 
-    private final Supplier<MessageDigest> sha256Supplier;
+    private final ThreadLocal<Context> contexts;
 
     public Curve25519Impl(Supplier<MessageDigest> sha256Supplier) {
-        this.sha256Supplier = sha256Supplier;
+        this.contexts = ThreadLocal.withInitial(() -> new Context(sha256Supplier.get()));
     }
 
     @Override
@@ -20,66 +23,132 @@ public class Curve25519Impl implements Curve25519 {
     @Override
     public byte[] getPublicKey(byte[] privateKey) {
         byte[] publicKey = new byte[32];
-        Curve25519.keygen(publicKey, null, privateKey);
+        Curve25519.keygen(publicKey, null, privateKey, contexts.get().scratch);
         return publicKey;
     }
 
     @Override
     public byte[] getSharedSecret(byte[] privateKey, byte[] publicKey) {
         byte[] dhSharedSecret = new byte[32];
-        Curve25519.curve(dhSharedSecret, privateKey, publicKey);
+        Curve25519.curve(dhSharedSecret, privateKey, publicKey, contexts.get().scratch);
         return dhSharedSecret;
     }
 
     @Override
-    public byte[] sign(byte[] message, byte[] privateKey) {
+    public SigningKey getSigningKey(byte[] privateKey) {
         byte[] publicKey = new byte[32];
         byte[] sharedKey = new byte[32];
-        MessageDigest digest = sha256Supplier.get();
-        Curve25519.keygen(publicKey, sharedKey, privateKey);
-        byte[] messageDigest = digest.digest(message);
-
-        digest.update(messageDigest);
-        byte[] x = digest.digest(sharedKey);
-
-        byte[] y = new byte[32];
-        Curve25519.keygen(y, null, x);
-
-        digest.update(messageDigest);
-        byte[] h = digest.digest(y);
+        Curve25519.keygen(publicKey, sharedKey, privateKey.clone(), contexts.get().scratch);
+        return new SigningKey(publicKey, sharedKey);
+    }
 
-        byte[] signature = new byte[64];
-        Curve25519.sign(signature, h, x, sharedKey);
-        System.arraycopy(h, 0, signature, 32, 32);
+    @Override
+    public byte[] sign(byte[] message, byte[] privateKey) {
+        return sign(message, getSigningKey(privateKey));
+    }
 
-        return signature;
+    @Override
+    public byte[] sign(byte[] message, SigningKey signingKey) {
+        byte[] sharedKey = signingKey.getSigningKey();
+        Context context = contexts.get();
+        MessageDigest digest = context.sha256;
+        byte[] messageDigest = context.m;
+        byte[] x = context.x;
+        byte[] y = context.Y;
+        byte[] h = context.h;
+        try {
+            digest.reset();
+            digest.update(message);
+            digest.digest(messageDigest, 0, 32);
+
+            digest.update(messageDigest);
+            digest.update(sharedKey);
+            digest.digest(x, 0, 32);
+
+            Curve25519.keygen(y, null, x, context.scratch);
+
+            digest.update(messageDigest);
+            digest.update(y);
+            digest.digest(h, 0, 32);
+
+            byte[] signature = new byte[64];
+            Curve25519.sign(signature, h, x, sharedKey, context.scratch);
+            System.arraycopy(h, 0, signature, 32, 32);
+
+            return signature;
+        } catch (DigestException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            Arrays.fill(x, (byte) 0);
+        }
     }
 
     @Override
     public boolean verify(byte[] message, byte[] signature, byte[] publicKey, boolean enforceCanonical) {
-        if (enforceCanonical && !Curve25519.isCanonicalSignature(signature)) {
+        return verify(message, signature, publicKey, enforceCanonical, contexts.get());
+    }
+
+    @Override
+    public boolean[] verifyBatch(List<byte[]> messages, List<byte[]> signatures, List<byte[]> publicKeys, boolean enforceCanonical) {
+        if (messages.size() != signatures.size() || messages.size() != publicKeys.size()) {
+            throw new IllegalArgumentException("Expected as many signatures and public keys as messages, had " + messages.size() + " messages, " + signatures.size() + " signatures and " + publicKeys.size() + " public keys");
+        }
+        boolean[] results = new boolean[messages.size()];
+        IntStream.range(0, results.length).parallel().forEach(i -> {
+            try {
+                results[i] = verify(messages.get(i), signatures.get(i), publicKeys.get(i), enforceCanonical, contexts.get());
+            } catch (RuntimeException e) {
+                results[i] = false;
+            }
+        });
+        return results;
+    }
+
+    private boolean verify(byte[] message, byte[] signature, byte[] publicKey, boolean enforceCanonical, Context context) {
+        Curve25519.Scratch scratch = context.scratch;
+        if (enforceCanonical && !Curve25519.isCanonicalSignature(signature, scratch)) {
             return false;
         }
 
-        if (enforceCanonical && !Curve25519.isCanonicalPublicKey(publicKey)) {
+        if (enforceCanonical && !Curve25519.isCanonicalPublicKey(publicKey, scratch)) {
             return false;
         }
 
-        byte[] Y = new byte[32];
-        byte[] v = new byte[32];
+        byte[] Y = context.Y;
+        byte[] v = context.v;
         System.arraycopy(signature, 0, v, 0, 32);
-        byte[] h = new byte[32];
+        byte[] h = context.h;
         System.arraycopy(signature, 32, h, 0, 32);
-        Curve25519.verify(Y, v, h, publicKey);
-
-        MessageDigest digest = sha256Supplier.get();
-        byte[] m = digest.digest(message);
-        digest.update(m);
-        byte[] h2 = digest.digest(Y);
+        Curve25519.verify(Y, v, h, publicKey, scratch);
+
+        MessageDigest digest = context.sha256;
+        byte[] m = context.m;
+        byte[] h2 = context.h2;
+        try {
+            digest.reset();
+            digest.update(message);
+            digest.digest(m, 0, 32);
+            digest.update(m);
+            digest.update(Y);
+            digest.digest(h2, 0, 32);
+        } catch (DigestException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
 
         return Arrays.equals(h, h2);
     }
 
+    /* The buffers and digest used by one thread to derive keys, sign and verify signatures */
+    private static final class Context {
+        private final Curve25519.Scratch scratch = new Curve25519.Scratch();
+        private final MessageDigest sha256;
+        private final byte[] Y = new byte[32], v = new byte[32], h = new byte[32], m = new byte[32], h2 = new byte[32], x = new byte[32];
+
+        private Context(MessageDigest sha256) {
+            this.sha256 = sha256;
+        }
+    }
+
     /* Ported from C to Java by Dmitry Skiba [sahn0], 23/02/08.
      * Original: http://cds.xs4all.nl:8081/ecdh/
      *
@@ -126,8 +195,13 @@ public class Curve25519Impl implements Curve25519 {
          *
          * WARNING: if s is not NULL, this function has data-dependent timing */
         public static void keygen(byte[] P, byte[] s, byte[] k) {
+            keygen(P, s, k, new Scratch());
+        }
+
+        /* As above, using the temporaries in scratch instead of allocating them */
+        public static void keygen(byte[] P, byte[] s, byte[] k, Scratch scratch) {
             clamp(k);
-            core(P, s, k, null);
+            coreFixedBase(P, s, k, scratch);
         }
 
         /* Key agreement
@@ -136,7 +210,12 @@ public class Curve25519Impl implements Curve25519 {
          *   @param P  [in]  peer's public key
          */
         public static void curve(byte[] Z, byte[] k, byte[] P) {
-            core(Z, null, k, P);
+            curve(Z, k, P, new Scratch());
+        }
+
+        /* As above, using the temporaries in scratch instead of allocating them */
+        public static void curve(byte[] Z, byte[] k, byte[] P, Scratch scratch) {
+            core(Z, null, k, P, scratch);
         }
 
         /********* DIGITAL SIGNATURES *********/
@@ -184,18 +263,24 @@ public class Curve25519Impl implements Curve25519 {
          * returns true on success, false on failure (use different x or h)
          */
         public static boolean sign(byte[] v, byte[] h, byte[] x, byte[] s) {
+            return sign(v, h, x, s, new Scratch());
+        }
+
+        /* As above, using the temporaries in scratch instead of allocating them */
+        public static boolean sign(byte[] v, byte[] h, byte[] x, byte[] s, Scratch scratch) {
             // v = (x - h) s  mod q
             int w, i;
-            byte[] h1 = new byte[32], x1 = new byte[32];
-            byte[] tmp1 = new byte[64];
-            byte[] tmp2 = new byte[64];
+            byte[] h1 = scratch.bytes1, x1 = scratch.bytes2;
+            byte[] tmp1 = scratch.wide1;
+            byte[] tmp2 = scratch.wide2;
+            Arrays.fill(tmp1, (byte) 0);
 
             // Don't clobber the arguments, be nice!
             cpy32(h1, h);
             cpy32(x1, x);
 
             // Reduce modulo group order
-            byte[] tmp3 = new byte[32];
+            byte[] tmp3 = scratch.bytes3;
             divmod(tmp3, h1, 32, ORDER, 32);
             divmod(tmp3, x1, 32, ORDER, 32);
 
@@ -222,10 +307,14 @@ public class Curve25519Impl implements Curve25519 {
          *   @param P  [in]  public key
          */
         public static void verify(byte[] Y, byte[] v, byte[] h, byte[] P) {
+            verify(Y, v, h, P, new Scratch());
+        }
+
+        /* As above, using the temporaries in scratch instead of allocating them */
+        public static void verify(byte[] Y, byte[] v, byte[] h, byte[] P, Scratch scratch) {
             /* Y = v abs(P) + h G  */
-            byte[] d = new byte[32];
-            long10[] p = new long10[] { new long10(), new long10() }, s = new long10[] { new long10(), new long10() }, yx = new long10[] { new long10(), new long10(), new long10() }, yz = new long10[] { new long10(), new long10(), new long10() },
-                    t1 = new long10[] { new long10(), new long10(), new long10() }, t2 = new long10[] { new long10(), new long10(), new long10() };
+            byte[] d = scratch.d;
+            long10[] p = scratch.p, s = scratch.s, yx = scratch.yx, yz = scratch.yz, t1 = scratch.t1, t2 = scratch.t2;
 
             int vi = 0, hi = 0, di = 0, nvh = 0, i, j, k;
 
@@ -240,7 +329,7 @@ public class Curve25519Impl implements Curve25519 {
             /* s[1] = (Py^2 + Gy^2 + 2 Py Gy)/(Px - Gx)^2 - Px - Gx - 486662  */
 
             x_to_y2(t1[0], t2[0], p[1]); /* t2[0] = Py^2  */
-            sqrt(t1[0], t2[0]); /* t1[0] = Py or -Py  */
+            sqrt(t1[0], t2[0], scratch.sqrt, scratch.recip); /* t1[0] = Py or -Py  */
             j = is_negative(t1[0]); /*      ... check which  */
             t2[0]._0 += 39420360; /* t2[0] = Py^2 + Gy^2  */
             mul(t2[1], BASE_2Y, t1[0]);/* t2[1] = 2 Py Gy or -2 Py Gy  */
@@ -249,7 +338,7 @@ public class Curve25519Impl implements Curve25519 {
             cpy(t2[0], p[1]); /* t2[0] = Px  */
             t2[0]._0 -= 9; /* t2[0] = Px - Gx  */
             sqr(t2[1], t2[0]); /* t2[1] = (Px - Gx)^2  */
-            recip(t2[0], t2[1], 0); /* t2[0] = 1/(Px - Gx)^2  */
+            recip(t2[0], t2[1], 0, scratch.recip); /* t2[0] = 1/(Px - Gx)^2  */
             mul(s[0], t1[0], t2[0]); /* s[0] = t1[0]/(Px - Gx)^2  */
             sub(s[0], s[0], p[1]); /* s[0] = t1[0]/(Px - Gx)^2 - Px  */
             s[0]._0 -= 9 + 486662; /* s[0] = X(P+G)  */
@@ -316,15 +405,20 @@ public class Curve25519Impl implements Curve25519 {
             }
 
             k = (vi & 1) + (hi & 1);
-            recip(t1[0], yz[k], 0);
+            recip(t1[0], yz[k], 0, scratch.recip);
             mul(t1[1], yx[k], t1[0]);
 
             pack(t1[1], Y);
         }
 
         public static boolean isCanonicalSignature(byte[] v) {
-            byte[] vCopy = Arrays.copyOfRange(v, 0, 32);
-            byte[] tmp = new byte[32];
+            return isCanonicalSignature(v, new Scratch());
+        }
+
+        public static boolean isCanonicalSignature(byte[] v, Scratch scratch) {
+            byte[] vCopy = scratch.bytes1;
+            byte[] tmp = scratch.bytes2;
+            cpy32(vCopy, v);
             divmod(tmp, vCopy, 32, ORDER, 32);
             for (int i = 0; i < 32; i++) {
                 if (v[i] != vCopy[i])
@@ -334,12 +428,16 @@ public class Curve25519Impl implements Curve25519 {
         }
 
         public static boolean isCanonicalPublicKey(byte[] publicKey) {
+            return isCanonicalPublicKey(publicKey, new Scratch());
+        }
+
+        public static boolean isCanonicalPublicKey(byte[] publicKey, Scratch scratch) {
             if (publicKey.length != 32) {
                 return false;
             }
-            long10 publicKeyUnpacked = new long10();
+            long10 publicKeyUnpacked = scratch.t1[0];
             unpack(publicKeyUnpacked, publicKey);
-            byte[] publicKeyCopy = new byte[32];
+            byte[] publicKeyCopy = scratch.bytes1;
             pack(publicKeyUnpacked, publicKeyCopy);
             for (int i = 0; i < 32; i++) {
                 if (publicKeyCopy[i] != publicKey[i]) {
@@ -349,6 +447,24 @@ public class Curve25519Impl implements Curve25519 {
             return true;
         }
 
+        /* Temporaries for key generation, key agreement, signing and verification,
+         * so that they can be reused between calls. Not thread safe. */
+        static final class Scratch {
+            private final byte[] d = new byte[32], bytes1 = new byte[32], bytes2 = new byte[32], bytes3 = new byte[32];
+            private final byte[] wide1 = new byte[64], wide2 = new byte[64];
+            private final long10[] p = newLong10s(2), s = newLong10s(2), yx = newLong10s(3), yz = newLong10s(3), t1 = newLong10s(3), t2 = newLong10s(3);
+            private final long10[] recip = newLong10s(5), sqrt = newLong10s(3);
+            private final long10[] x = newLong10s(2), z = newLong10s(2), ladder = newLong10s(5);
+            private final long10[] r = newLong10s(4), e = newLong10s(3), ed = newLong10s(6);
+
+            private static long10[] newLong10s(int n) {
+                long10[] array = new long10[n];
+                for (int i = 0; i < n; i++)
+                    array[i] = new long10();
+                return array;
+            }
+        }
+
         ///////////////////////////////////////////////////////////////////////////
 
         /* sahn0:
@@ -447,17 +563,16 @@ public class Curve25519Impl implements Curve25519 {
         /* Returns x if a contains the gcd, y if b.
          * Also, the returned buffer contains the inverse of a mod b,
          * as 32-byte signed.
-         * x and y must have 64 bytes space for temporary use.
+         * x and y must have 64 bytes space for temporary use, temp 32.
          * requires that a[-1] and b[-1] are valid memory locations  */
-        private static byte[] egcd32(byte[] x, byte[] y, byte[] a, byte[] b) {
+        private static byte[] egcd32(byte[] x, byte[] y, byte[] a, byte[] b, byte[] temp) {
             int an, bn = 32, qn, i;
-            for (i = 0; i < 32; i++)
+            for (i = 0; i < 64; i++)
                 x[i] = y[i] = 0;
             x[0] = 1;
             an = numsize(a, 32);
             if (an == 0)
                 return y; /* division by zero */
-            byte[] temp = new byte[32];
             while (true) {
                 qn = bn - an + 1;
                 divmod(temp, b, bn, a, an);
@@ -710,7 +825,12 @@ public class Curve25519Impl implements Curve25519 {
          * be.  Simply calculates  y = x^(p-2)  so it's not too fast. */
         /* When sqrtassist is true, it instead calculates y = x^((p-5)/8) */
         private static void recip(long10 y, long10 x, int sqrtassist) {
-            long10 t0 = new long10(), t1 = new long10(), t2 = new long10(), t3 = new long10(), t4 = new long10();
+            recip(y, x, sqrtassist, new long10[] { new long10(), new long10(), new long10(), new long10(), new long10() });
+        }
+
+        /* t holds 5 temporaries */
+        private static void recip(long10 y, long10 x, int sqrtassist, long10[] t) {
+            long10 t0 = t[0], t1 = t[1], t2 = t[2], t3 = t[3], t4 = t[4];
             int i;
             /* the chain for x^(2^255-21) is straight from djb's implementation */
             sqr(t1, x); /*  2 == 2 * 1  */
@@ -783,10 +903,11 @@ public class Curve25519Impl implements Curve25519 {
         }
 
         /* a square root */
-        private static void sqrt(long10 x, long10 u) {
-            long10 v = new long10(), t1 = new long10(), t2 = new long10();
+        /* t holds 3 temporaries and recipTemps 5 more for recip */
+        private static void sqrt(long10 x, long10 u, long10[] t, long10[] recipTemps) {
+            long10 v = t[0], t1 = t[1], t2 = t[2];
             add(t1, u, u); /* t1 = 2u    */
-            recip(v, t1, 1); /* v = (2u)^((p-5)/8) */
+            recip(v, t1, 1, recipTemps); /* v = (2u)^((p-5)/8) */
             sqr(x, v); /* x = v^2    */
             mul(t2, t1, x); /* t2 = 2uv^2   */
             t2._0--; /* t2 = 2uv^2-1   */
@@ -845,10 +966,14 @@ public class Curve25519Impl implements Curve25519 {
             mul(y2, t, x);
         }
 
-        /* P = kG   and  s = sign(P)/k  */
-        private static void core(byte[] Px, byte[] s, byte[] k, byte[] Gx) {
-            long10 dx = new long10(), t1 = new long10(), t2 = new long10(), t3 = new long10(), t4 = new long10();
-            long10[] x = new long10[] { new long10(), new long10() }, z = new long10[] { new long10(), new long10() };
+        /* P = kG   and  s = sign(P)/k
+         * The ladder swaps its arguments with masks rather than indexing by the
+         * bits of k, so that the memory accessed doesn't depend on the key  */
+        private static void core(byte[] Px, byte[] s, byte[] k, byte[] Gx, Scratch scratch) {
+            long10[] l = scratch.ladder;
+            long10 dx = l[0], t1 = l[1], t2 = l[2], t3 = l[3], t4 = l[4];
+            long10[] x = scratch.x, z = scratch.z;
+            long swap, bit;
             int i, j;
 
             /* unpack the base */
@@ -865,36 +990,36 @@ public class Curve25519Impl implements Curve25519 {
             cpy(x[1], dx);
             set(z[1], 1);
 
+            swap = 0;
             for (i = 32; i-- != 0;) {
-                if (i == 0) {
-                    i = 0;
-                }
                 for (j = 8; j-- != 0;) {
-                    /* swap arguments depending on bit */
-                    int bit1 = (k[i] & 0xFF) >> j & 1;
-                    int bit0 = ~(k[i] & 0xFF) >> j & 1;
-                    long10 ax = x[bit0];
-                    long10 az = z[bit0];
-                    long10 bx = x[bit1];
-                    long10 bz = z[bit1];
+                    /* a is x[0] if the bit is set and x[1] if not. Rather than
+                     * swapping back after each step, only swap again when the
+                     * next bit is different */
+                    bit = -(long) (~(k[i] & 0xFF) >> j & 1);
+                    cswap(x[0], x[1], swap ^ bit);
+                    cswap(z[0], z[1], swap ^ bit);
+                    swap = bit;
 
                     /* a' = a + b */
                     /* b' = 2 b */
-                    mont_prep(t1, t2, ax, az);
-                    mont_prep(t3, t4, bx, bz);
-                    mont_add(t1, t2, t3, t4, ax, az, dx);
-                    mont_dbl(t1, t2, t3, t4, bx, bz);
+                    mont_prep(t1, t2, x[0], z[0]);
+                    mont_prep(t3, t4, x[1], z[1]);
+                    mont_add(t1, t2, t3, t4, x[0], z[0], dx);
+                    mont_dbl(t1, t2, t3, t4, x[1], z[1]);
                 }
             }
+            cswap(x[0], x[1], swap);
+            cswap(z[0], z[1], swap);
 
-            recip(t1, z[0], 0);
+            recip(t1, z[0], 0, scratch.recip);
             mul(dx, x[0], t1);
             pack(dx, Px);
 
             /* calculate s such that s abs(P) = G  .. assumes G is std base point */
             if (s != null) {
                 x_to_y2(t2, t1, dx); /* t1 = Py^2  */
-                recip(t3, z[1], 0); /* where Q=P+G ... */
+                recip(t3, z[1], 0, scratch.recip); /* where Q=P+G ... */
                 mul(t2, x[1], t3); /* t2 = Qx  */
                 add(t2, t2, dx); /* t2 = Qx + Px  */
                 t2._0 += 9 + 486662; /* t2 = Qx + Px + Gx + 486662  */
@@ -913,14 +1038,201 @@ public class Curve25519Impl implements Curve25519 {
                  * (is this needed?  do it just in case, it's fast anyway) */
                 //divmod((dstptr) t1, s, 32, order25519, 32);
 
-                /* take reciprocal of s mod q */
-                byte[] temp1 = new byte[32];
-                byte[] temp2 = new byte[64];
-                byte[] temp3 = new byte[64];
-                cpy32(temp1, ORDER);
-                cpy32(s, egcd32(temp2, temp3, s, temp1));
-                if ((s[31] & 0x80) != 0)
-                    mula_small(s, s, 0, ORDER, 32, 1);
+                recip_order(s, scratch);
+            }
+        }
+
+        /* take reciprocal of s mod q */
+        private static void recip_order(byte[] s, Scratch scratch) {
+            byte[] temp1 = scratch.bytes1;
+            cpy32(temp1, ORDER);
+            cpy32(s, egcd32(scratch.wide1, scratch.wide2, s, temp1, scratch.bytes2));
+            if ((s[31] & 0x80) != 0)
+                mula_small(s, s, 0, ORDER, 32, 1);
+        }
+
+        /********************* Fixed base *********************/
+
+        /* The base point is only ever multiplied by a secret scalar, so instead of
+         * running the ladder, kG is calculated as the sum of precomputed multiples
+         * j 16^i G, one for each nibble of k. Point addition needs the full point,
+         * so this is done on the birationally equivalent twisted Edwards curve
+         *   -x^2 + y^2 = 1 + d x^2 y^2,  d = -121665/121666
+         * where  x = c u/v,  y = (u - 1)/(u + 1),  c = sqrt(-486664)
+         * and the result is mapped back to the Montgomery curve. */
+
+        /* P = kG   and  s = sign(P)/k, same as core(Px, s, k, null, scratch)  */
+        private static void coreFixedBase(byte[] Px, byte[] s, byte[] k, Scratch scratch) {
+            long10[] r = scratch.r, e = scratch.e, t = scratch.ed;
+            long10[][][] table = BaseTable.TABLE;
+            int i;
+
+            /* start at the neutral element (0, 1) */
+            set(r[0], 0);
+            set(r[1], 1);
+            set(r[2], 1);
+            set(r[3], 0);
+
+            for (i = 0; i < 64; i++) {
+                ed_select(e, table[i], (k[i >> 1] & 0xFF) >> ((i & 1) << 2) & 15);
+                ed_madd(r, e, t);
+            }
+
+            /* u = (Z + Y)/(Z - Y)
+             * v = c (Z + Y) Z/((Z - Y) X)  */
+            long10 zpy = t[0], zmy = t[1], inv = t[2], u = t[3], n = t[4];
+            add(zpy, r[2], r[1]);
+            sub(zmy, r[2], r[1]);
+            mul(n, zmy, r[0]);
+            recip(inv, n, 0, scratch.recip); /* inv = 1/((Z - Y) X)  */
+            mul(n, zpy, r[0]);
+            mul(u, n, inv);
+            pack(u, Px);
+
+            if (s != null) {
+                mul(n, zpy, r[2]);
+                mul(u, n, inv);
+                mul(n, u, BaseTable.NEG_C); /* n = -Py  */
+                if (is_negative(n) != 0) /* sign is 1, so just copy  */
+                    cpy32(s, k);
+                else /* sign is -1, so negate  */
+                    mula_small(s, ORDER_TIMES_8, 0, k, 32, -1);
+                recip_order(s, scratch);
+            }
+        }
+
+        /* Constant time e = entries[index], without index dependent memory access */
+        private static void ed_select(long10[] e, long10[][] entries, int index) {
+            cpy(e[0], entries[0][0]);
+            cpy(e[1], entries[0][1]);
+            cpy(e[2], entries[0][2]);
+            for (int j = 1; j < entries.length; j++) {
+                long mask = -(long) (((index ^ j) - 1) >>> 31);
+                cmov(e[0], entries[j][0], mask);
+                cmov(e[1], entries[j][1], mask);
+                cmov(e[2], entries[j][2], mask);
+            }
+        }
+
+        /* x = y if mask is all ones, unchanged if mask is 0 */
+        private static void cmov(long10 x, long10 y, long mask) {
+            x._0 ^= mask & (x._0 ^ y._0);
+            x._1 ^= mask & (x._1 ^ y._1);
+            x._2 ^= mask & (x._2 ^ y._2);
+            x._3 ^= mask & (x._3 ^ y._3);
+            x._4 ^= mask & (x._4 ^ y._4);
+            x._5 ^= mask & (x._5 ^ y._5);
+            x._6 ^= mask & (x._6 ^ y._6);
+            x._7 ^= mask & (x._7 ^ y._7);
+            x._8 ^= mask & (x._8 ^ y._8);
+            x._9 ^= mask & (x._9 ^ y._9);
+        }
+
+        /* swaps x and y if mask is all ones, leaves them if mask is 0 */
+        private static void cswap(long10 x, long10 y, long mask) {
+            long t;
+            t = mask & (x._0 ^ y._0); x._0 ^= t; y._0 ^= t;
+            t = mask & (x._1 ^ y._1); x._1 ^= t; y._1 ^= t;
+            t = mask & (x._2 ^ y._2); x._2 ^= t; y._2 ^= t;
+            t = mask & (x._3 ^ y._3); x._3 ^= t; y._3 ^= t;
+            t = mask & (x._4 ^ y._4); x._4 ^= t; y._4 ^= t;
+            t = mask & (x._5 ^ y._5); x._5 ^= t; y._5 ^= t;
+            t = mask & (x._6 ^ y._6); x._6 ^= t; y._6 ^= t;
+            t = mask & (x._7 ^ y._7); x._7 ^= t; y._7 ^= t;
+            t = mask & (x._8 ^ y._8); x._8 ^= t; y._8 ^= t;
+            t = mask & (x._9 ^ y._9); x._9 ^= t; y._9 ^= t;
+        }
+
+        /* R = R + E   where
+         *  R = (X:Y:Z:T) in extended coordinates,  x = X/Z, y = Y/Z, xy = T/Z
+         *  E = (y + x, y - x, 2dxy) of an affine point
+         * t holds 6 temporaries  */
+        private static void ed_madd(long10[] r, long10[] e, long10[] t) {
+            long10 a = t[0], b = t[1], c = t[2], d = t[3], ee = t[4], h = t[5];
+            sub(a, r[1], r[0]);
+            mul(a, a, e[1]); /* a = (Y - X)(y - x)  */
+            add(b, r[1], r[0]);
+            mul(b, b, e[0]); /* b = (Y + X)(y + x)  */
+            mul(c, r[3], e[2]); /* c = 2dxyT  */
+            mul_small(d, r[2], 2); /* d = 2Z  */
+            sub(ee, b, a);
+            add(h, b, a);
+            sub(a, d, c); /* a = F  */
+            add(b, d, c); /* b = G  */
+            mul(r[0], ee, a);
+            mul(r[1], b, h);
+            mul(r[2], a, b);
+            mul(r[3], ee, h);
+        }
+
+        /* E = (y + x, y - x, 2dxy) of R  */
+        private static void ed_to_affine(long10[] e, long10[] r, long10 d2) {
+            long10 zi = new long10(), x = new long10(), y = new long10();
+            recip(zi, r[2], 0);
+            mul(x, r[0], zi);
+            mul(y, r[1], zi);
+            add(e[0], y, x);
+            mul_small(e[0], e[0], 1);
+            sub(e[1], y, x);
+            mul_small(e[1], e[1], 1);
+            mul(zi, x, y);
+            mul(e[2], zi, d2);
+        }
+
+        /* Built on first use rather than when the class is loaded */
+        private static final class BaseTable {
+            /* -c, to map back to the Montgomery curve */
+            private static final long10 NEG_C = new long10();
+            /* TABLE[i][j] = j 16^i G  */
+            private static final long10[][][] TABLE = new long10[64][16][];
+
+            static {
+                long10 c = new long10(), d2 = new long10(), t1 = new long10(), t2 = new long10();
+                long10[] r = { new long10(), new long10(), new long10(), new long10() };
+                long10[] g = { new long10(), new long10(), new long10() };
+                long10[] t = { new long10(), new long10(), new long10(), new long10(), new long10(), new long10() };
+                long10[] sqrtTemps = { new long10(), new long10(), new long10() };
+                long10[] recipTemps = { new long10(), new long10(), new long10(), new long10(), new long10() };
+                int i, j;
+
+                set(t1, -486664);
+                mul_small(t1, t1, 1);
+                sqrt(c, t1, sqrtTemps, recipTemps); /* c = sqrt(-486664)  */
+                set(t1, 0);
+                sub(NEG_C, t1, c);
+                mul_small(NEG_C, NEG_C, 1);
+
+                set(t1, 121666);
+                recip(t2, t1, 0);
+                set(t1, -243330);
+                mul(d2, t1, t2); /* d2 = 2d  */
+
+                /* G = (c 9/Gy, 4/5) in extended coordinates  */
+                set(t1, 2);
+                recip(t2, t1, 0);
+                mul(t1, BASE_2Y, t2); /* t1 = Gy  */
+                recip(t2, t1, 0);
+                mul_small(t1, c, 9);
+                mul(r[0], t1, t2);
+                set(t1, 5);
+                recip(t2, t1, 0);
+                mul_small(r[1], t2, 4);
+                set(r[2], 1);
+                mul(r[3], r[0], r[1]);
+
+                for (i = 0; i < 64; i++) {
+                    /* g = 16^i G  */
+                    ed_to_affine(g, r, d2);
+                    set(r[0], 0);
+                    set(r[1], 1);
+                    set(r[2], 1);
+                    set(r[3], 0);
+                    for (j = 0; j < 16; j++) {
+                        TABLE[i][j] = new long10[] { new long10(), new long10(), new long10() };
+                        ed_to_affine(TABLE[i][j], r, d2);
+                        ed_madd(r, g, t);
+                    }
+                }
             }
         }
 
@@ -0,0 +1,27 @@
+package burst.kit.crypto.ec;
+
+/**
+ * A private key prepared for signing. Deriving the public key and the signing key from a private key takes
+ * as long as the rest of a signature, so when signing many messages with the same key they are derived once
+ * and kept here.
+ */
+public final class SigningKey {
+    private final byte[] publicKey;
+    private final byte[] signingKey;
+
+    SigningKey(byte[] publicKey, byte[] signingKey) {
+        this.publicKey = publicKey;
+        this.signingKey = signingKey;
+    }
+
+    /**
+     * @return The public key
+     */
+    public byte[] getPublicKey() {
+        return publicKey.clone();
+    }
+
+    byte[] getSigningKey() {
+        return signingKey;
+    }
+}
@@ -1,5 +1,7 @@
 package burst.kit.crypto.hash.shabal;
 
+import java.nio.ByteBuffer;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.List;
@@ -100,32 +102,101 @@ public class Shabal256 extends MessageDigest {
         ptr = len;
     }
 
+    @Override
+    protected void engineUpdate(ByteBuffer input) {
+        if (input.hasArray()) {
+            int pos = input.position();
+            int len = input.limit() - pos;
+            engineUpdate(input.array(), input.arrayOffset() + pos, len);
+            input.position(pos + len);
+            return;
+        }
+        // Off-heap: stage one block at a time through buf, which never allocates
+        while (input.hasRemaining()) {
+            int len = Math.min(64 - ptr, input.remaining());
+            input.get(buf, ptr, len);
+            ptr += len;
+            if (ptr == 64) {
+                core1(buf);
+                ptr = 0;
+            }
+        }
+    }
+
     @Override
     protected byte[] engineDigest() {
         byte[] out = new byte[32];
-        buf[ptr++] = (byte) 0x80;
-        for (int i = ptr; i < 64; i++)
-            buf[i] = 0;
+        digest(out, 0);
+        return out;
+    }
 
-        core1(buf); W--;
-        core1(buf); W--;
-        core1(buf); W--;
-        core1(buf); W--;
+    @Override
+    protected int engineDigest(byte[] out, int off, int len) throws DigestException {
+        if (len < 32) {
+            throw new DigestException("partial digests not returned");
+        }
+        digest(out, off);
+        return 32;
+    }
 
+    /**
+     * Complete the hash computation, writing the digest into the supplied array, and reset the digest.
+     * Unlike {@link #digest()}, this does not allocate.
+     * @param out The array to write the 32 byte digest into
+     * @param off The offset to start writing at
+     */
+    public void digest(byte[] out, int off) {
+        close();
         int j = 36;
         int w = 0;
         for (int i = 0; i < 32; i++) {
             if ((i & 3) == 0) { // 0 4 8 12 16 20 ...
                 w = state[j++];
             }
-            out[i] = (byte) w;
+            out[off + i] = (byte) w;
             w >>>= 8;
         }
         reset();
-        return out;
     }
 
-    private static int[] getIV() {
+    /**
+     * Complete the hash computation, writing the digest into the supplied buffer, and reset the digest.
+     * Unlike {@link #digest()}, this does not allocate.
+     * @param out The buffer to write the 32 byte digest into. Its position is advanced by 32.
+     */
+    public void digest(ByteBuffer out) {
+        if (out.remaining() < 32) {
+            throw new IllegalArgumentException("Need 32 bytes remaining, had " + out.remaining());
+        }
+        if (out.hasArray()) {
+            int pos = out.position();
+            digest(out.array(), out.arrayOffset() + pos);
+            out.position(pos + 32);
+            return;
+        }
+        close();
+        for (int j = 36; j < 44; j++) {
+            int w = state[j];
+            out.put((byte) w);
+            out.put((byte) (w >>> 8));
+            out.put((byte) (w >>> 16));
+            out.put((byte) (w >>> 24));
+        }
+        reset();
+    }
+
+    private void close() {
+        buf[ptr++] = (byte) 0x80;
+        for (int i = ptr; i < 64; i++)
+            buf[i] = 0;
+
+        core1(buf); W--;
+        core1(buf); W--;
+        core1(buf); W--;
+        core1(buf); W--;
+    }
+
+    static int[] getIV() {
         if (IV == null) {
             Shabal256 sg = new Shabal256(false);
 
@@ -183,6 +254,27 @@ public class Shabal256 extends MessageDigest {
         return d;
     }
 
+    /**
+     * Take a snapshot of the current state, including any buffered input, so that a common message prefix
+     * only has to be hashed once. The snapshot can be loaded into any instance using {@link #restore(Shabal256)}.
+     * @return The snapshot
+     */
+    public Shabal256 snapshot() {
+        return clone();
+    }
+
+    /**
+     * Load the state of a snapshot into this digest, as if the snapshot's input had been fed into it.
+     * Unlike {@link #clone()}, this does not allocate. The snapshot is not modified.
+     * @param midstate The snapshot to restore
+     */
+    public void restore(Shabal256 midstate) {
+        System.arraycopy(midstate.buf, 0, buf, 0, midstate.ptr);
+        ptr = midstate.ptr;
+        System.arraycopy(midstate.state, 0, state, 0, 44);
+        W = midstate.W;
+    }
+
     public int getBlockLength() {
         return 64;
     }
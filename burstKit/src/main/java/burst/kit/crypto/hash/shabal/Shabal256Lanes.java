@@ -0,0 +1,248 @@
+package burst.kit.crypto.hash.shabal;
+
+import java.util.Arrays;
+
+/**
+ * A multi-lane Shabal-256 engine which hashes several independent messages of equal length in lockstep.
+ *
+ * The state is stored lane-interleaved: every state word is an array holding that word for each lane,
+ * so each step of the permutation is a simple loop over the lanes which the JIT is able to vectorize.
+ * All lanes must always be fed the same number of bytes - this is the case when generating plots or
+ * checking the same scoop of many nonces.
+ *
+ * Each step of the permutation carries a fixed loop overhead, so throughput improves with the number of lanes:
+ * 16 lanes or more are recommended. Instances are not thread safe.
+ */
+public class Shabal256Lanes {
+
+    public static final int DIGEST_LENGTH = 32;
+    public static final int BLOCK_LENGTH = 64;
+
+    private final int lanes;
+    private final byte[] buf;
+    private int ptr;
+    private final int[][] a;
+    private int[][] b;
+    private int[][] c;
+    private final int[][] m;
+    private long W;
+
+    public Shabal256Lanes(int lanes) {
+        if (lanes < 1) {
+            throw new IllegalArgumentException("Must have at least one lane, had " + lanes);
+        }
+        this.lanes = lanes;
+        this.buf = new byte[BLOCK_LENGTH * lanes];
+        this.a = new int[12][lanes];
+        this.b = new int[16][lanes];
+        this.c = new int[16][lanes];
+        this.m = new int[16][lanes];
+        reset();
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    public void reset() {
+        int[] iv = Shabal256.getIV();
+        for (int i = 0; i < 12; i++) {
+            Arrays.fill(a[i], iv[i]);
+        }
+        for (int i = 0; i < 16; i++) {
+            Arrays.fill(b[i], iv[12 + i]);
+            Arrays.fill(c[i], iv[28 + i]);
+        }
+        W = 1;
+        ptr = 0;
+    }
+
+    /**
+     * Feed every lane with its own input array
+     * @param in The inputs, one per lane
+     * @param off The offset to start reading at in every input
+     * @param len The number of bytes to read from every input
+     */
+    public void update(byte[][] in, int off, int len) {
+        if (in.length < lanes) {
+            throw new IllegalArgumentException("Expected " + lanes + " inputs, had " + in.length);
+        }
+        update(in, null, off, 0, len);
+    }
+
+    /**
+     * Feed every lane from a region of one array. Lane i reads from {@code off + i * stride}.
+     * A stride of 0 feeds every lane the same bytes.
+     * @param in The input
+     * @param off The offset of the first lane's input
+     * @param stride The distance between the inputs of consecutive lanes
+     * @param len The number of bytes to read for every lane
+     */
+    public void update(byte[] in, int off, int stride, int len) {
+        update(null, in, off, stride, len);
+    }
+
+    private void update(byte[][] ins, byte[] in, int off, int stride, int len) {
+        while (len > 0) {
+            if (ptr == 0 && len >= BLOCK_LENGTH) {
+                for (int l = 0; l < lanes; l++) {
+                    if (ins != null) {
+                        decodeBlock(ins[l], off, l);
+                    } else {
+                        decodeBlock(in, off + l * stride, l);
+                    }
+                }
+                core();
+                off += BLOCK_LENGTH;
+                len -= BLOCK_LENGTH;
+                continue;
+            }
+            int n = Math.min(BLOCK_LENGTH - ptr, len);
+            for (int l = 0; l < lanes; l++) {
+                if (ins != null) {
+                    System.arraycopy(ins[l], off, buf, l * BLOCK_LENGTH + ptr, n);
+                } else {
+                    System.arraycopy(in, off + l * stride, buf, l * BLOCK_LENGTH + ptr, n);
+                }
+            }
+            ptr += n;
+            off += n;
+            len -= n;
+            if (ptr == BLOCK_LENGTH) {
+                decodeBuffer();
+                core();
+                ptr = 0;
+            }
+        }
+    }
+
+    /**
+     * Finish every lane, writing each digest into its own output array, and reset.
+     * @param out The outputs, one per lane
+     * @param off The offset to write at in every output
+     */
+    public void digest(byte[][] out, int off) {
+        if (out.length < lanes) {
+            throw new IllegalArgumentException("Expected " + lanes + " outputs, had " + out.length);
+        }
+        close();
+        for (int l = 0; l < lanes; l++) {
+            encodeDigest(out[l], off, l);
+        }
+        reset();
+    }
+
+    /**
+     * Finish every lane, writing lane i's digest to {@code off + i * stride}, and reset.
+     * @param out The output
+     * @param off The offset of the first lane's digest
+     * @param stride The distance between the digests of consecutive lanes
+     */
+    public void digest(byte[] out, int off, int stride) {
+        close();
+        for (int l = 0; l < lanes; l++) {
+            encodeDigest(out, off + l * stride, l);
+        }
+        reset();
+    }
+
+    private void close() {
+        for (int l = 0; l < lanes; l++) {
+            int o = l * BLOCK_LENGTH;
+            buf[o + ptr] = (byte) 0x80;
+            for (int i = ptr + 1; i < BLOCK_LENGTH; i++) {
+                buf[o + i] = 0;
+            }
+        }
+        decodeBuffer();
+        core(); W--;
+        core(); W--;
+        core(); W--;
+        core(); W--;
+    }
+
+    private void encodeDigest(byte[] out, int off, int lane) {
+        for (int i = 0; i < 8; i++) {
+            int w = c[8 + i][lane];
+            out[off++] = (byte) w;
+            out[off++] = (byte) (w >>> 8);
+            out[off++] = (byte) (w >>> 16);
+            out[off++] = (byte) (w >>> 24);
+        }
+    }
+
+    private void decodeBuffer() {
+        for (int l = 0; l < lanes; l++) {
+            decodeBlock(buf, l * BLOCK_LENGTH, l);
+        }
+    }
+
+    private void decodeBlock(byte[] data, int off, int lane) {
+        for (int i = 0; i < 16; i++, off += 4) {
+            m[i][lane] = (data[off] & 0xFF)
+                    | ((data[off + 1] & 0xFF) << 8)
+                    | ((data[off + 2] & 0xFF) << 16)
+                    | ((data[off + 3] & 0xFF) << 24);
+        }
+    }
+
+    private void core() {
+        final int L = lanes;
+        final int[][] a = this.a, b = this.b, c = this.c, m = this.m;
+
+        for (int i = 0; i < 16; i++) {
+            int[] bi = b[i], mi = m[i];
+            for (int l = 0; l < L; l++) {
+                int x = bi[l] + mi[l];
+                bi[l] = (x << 17) | (x >>> 15);
+            }
+        }
+
+        int w0 = (int) W, w1 = (int) (W >>> 32);
+        int[] a0 = a[0], a1 = a[1];
+        for (int l = 0; l < L; l++) {
+            a0[l] ^= w0;
+            a1[l] ^= w1;
+        }
+        W++;
+
+        for (int j = 0; j < 3; j++) {
+            for (int i = 0; i < 16; i++) {
+                int[] ak = a[(16 * j + i) % 12];
+                int[] ap = a[(16 * j + i + 11) % 12];
+                int[] bi = b[i];
+                int[] b13 = b[(i + 13) & 15];
+                int[] b9 = b[(i + 9) & 15];
+                int[] b6 = b[(i + 6) & 15];
+                int[] ci = c[(8 - i) & 15];
+                int[] mi = m[i];
+                for (int l = 0; l < L; l++) {
+                    int p = ap[l];
+                    ak[l] = ((ak[l] ^ (((p << 15) | (p >>> 17)) * 5) ^ ci[l]) * 3)
+                            ^ b13[l] ^ (b9[l] & ~b6[l]) ^ mi[l];
+                }
+                for (int l = 0; l < L; l++) {
+                    int y = bi[l];
+                    bi[l] = ~((y << 1) | (y >>> 31)) ^ ak[l];
+                }
+            }
+        }
+
+        for (int i = 0; i < 12; i++) {
+            int[] ai = a[i], c1 = c[(i + 11) & 15], c2 = c[(i + 15) & 15], c3 = c[(i + 3) & 15];
+            for (int l = 0; l < L; l++) {
+                ai[l] += c1[l] + c2[l] + c3[l];
+            }
+        }
+
+        // B becomes C - M and C becomes B
+        for (int i = 0; i < 16; i++) {
+            int[] ci = c[i], mi = m[i];
+            for (int l = 0; l < L; l++) {
+                ci[l] -= mi[l];
+            }
+        }
+        this.b = c;
+        this.c = b;
+    }
+}
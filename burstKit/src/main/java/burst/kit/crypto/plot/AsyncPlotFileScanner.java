@@ -0,0 +1,207 @@
+package burst.kit.crypto.plot;
+
+import burst.kit.crypto.plot.impl.MiningPlot;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link PlotFileScanner} which reads scoop regions with {@link AsynchronousFileChannel}, keeping several reads
+ * in flight per drive so that each drive's queue never runs dry while the previous read is being evaluated.
+ *
+ * Each directory is treated as one drive, with its own I/O threads and its own pool of direct read buffers, which are
+ * reused from block to block and released by {@link #close()}. Completed buffers are evaluated in file order by the
+ * directory's scanning thread, while the following reads are still in progress.
+ */
+public class AsyncPlotFileScanner extends PlotFileScanner {
+    public static final int DEFAULT_READ_SIZE = 1 << 20;
+    public static final int DEFAULT_IN_FLIGHT = 4;
+
+    private final PlotCalculator plotCalculator;
+    private final int readSize;
+    private final int inFlight;
+    private final Map<Path, Drive> drives = new HashMap<>();
+
+    public AsyncPlotFileScanner(PlotCalculator plotCalculator, Collection<Path> directories) {
+        this(plotCalculator, directories, DEFAULT_READ_SIZE, DEFAULT_IN_FLIGHT);
+    }
+
+    /**
+     * @param plotCalculator The plot calculator to evaluate scoops with
+     * @param directories The directories containing plot files, one per drive
+     * @param readSize The size of each read in bytes. Must be a multiple of 64, the size of a scoop.
+     * @param inFlight The number of reads to keep in flight per drive
+     */
+    public AsyncPlotFileScanner(PlotCalculator plotCalculator, Collection<Path> directories, int readSize, int inFlight) {
+        super(plotCalculator, directories);
+        if (readSize <= 0 || readSize % MiningPlot.SCOOP_SIZE != 0) {
+            throw new IllegalArgumentException("Read size must be a positive multiple of " + MiningPlot.SCOOP_SIZE + ", was " + readSize);
+        }
+        if (inFlight <= 0) {
+            throw new IllegalArgumentException("Must allow at least one read in flight, was " + inFlight);
+        }
+        this.plotCalculator = plotCalculator;
+        this.readSize = readSize;
+        this.inFlight = inFlight;
+        for (Path directory : getDirectories()) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            drives.put(toKey(directory), new Drive(Executors.newFixedThreadPool(inFlight, runnable -> {
+                Thread thread = new Thread(runnable, "plot-reader-" + directory.getFileName() + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            })));
+        }
+    }
+
+    @Override
+    protected PlotScanResult scanFile(Path path, PlotFile plotFile, byte[] genSig, int scoop, long baseTarget) throws IOException {
+        long start = System.nanoTime();
+        Drive drive = drives.get(toKey(path.toAbsolutePath().getParent()));
+        Deque<ByteBuffer> free = new ArrayDeque<>(inFlight);
+        for (int i = 0; i < inFlight; i++) {
+            ByteBuffer buffer = drive.buffers.poll();
+            free.addLast(buffer != null ? buffer : ByteBuffer.allocateDirect(readSize));
+        }
+        Deque<PendingRead> pending = new ArrayDeque<>(inFlight);
+        long bestNonce = 0;
+        long bestDeadline = -1;
+
+        try (AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, Collections.singleton(StandardOpenOption.READ), drive.ioExecutor)) {
+            if (channel.size() < plotFile.getSize()) {
+                return null;
+            }
+            long offset = plotFile.getScoopOffset(scoop);
+            long end = offset + plotFile.getScoopLength();
+            long position = offset;
+            while (position < end || !pending.isEmpty()) {
+                while (position < end && !free.isEmpty()) {
+                    ByteBuffer buffer = free.removeFirst();
+                    buffer.clear();
+                    buffer.limit((int) Math.min(readSize, end - position));
+                    pending.addLast(new PendingRead(buffer, position, channel.read(buffer, position)));
+                    position += buffer.limit();
+                }
+
+                // Only taken off the pending reads once complete, so that it is cancelled if waiting for it fails
+                PendingRead read = pending.getFirst();
+                read.await(channel);
+                pending.removeFirst();
+                read.buffer.flip();
+                long firstNonce = plotFile.getStartNonce() + (read.position - offset) / MiningPlot.SCOOP_SIZE;
+                BestDeadline best = plotCalculator.calculateBestDeadline(read.buffer, firstNonce, genSig, baseTarget);
+                if (read.position == offset || Long.compareUnsigned(best.getDeadline(), bestDeadline) < 0) {
+                    bestNonce = best.getNonce();
+                    bestDeadline = best.getDeadline();
+                }
+                free.addLast(read.buffer);
+            }
+        } finally {
+            for (PendingRead read : pending) {
+                // A cancelled read may still complete into its buffer, so only reuse the buffers of reads that had finished
+                if (!read.future.cancel(true) && read.future.isDone()) {
+                    free.addLast(read.buffer);
+                }
+            }
+            drive.release(free);
+        }
+        return new PlotScanResult(path, plotFile, bestNonce, bestDeadline, System.nanoTime() - start);
+    }
+
+    /**
+     * Make the paths of the same directory equal, however they were written
+     */
+    private static Path toKey(Path directory) {
+        try {
+            return directory.toRealPath();
+        } catch (IOException e) {
+            return directory.toAbsolutePath().normalize();
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        for (Drive drive : drives.values()) {
+            drive.close();
+        }
+    }
+
+    /* The I/O threads and free read buffers of one directory */
+    private static final class Drive {
+        private final ExecutorService ioExecutor;
+        private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+        private volatile boolean closed;
+
+        private Drive(ExecutorService ioExecutor) {
+            this.ioExecutor = ioExecutor;
+        }
+
+        private void release(Collection<ByteBuffer> free) {
+            buffers.addAll(free);
+            if (closed) {
+                buffers.clear();
+            }
+        }
+
+        private void close() {
+            closed = true;
+            ioExecutor.shutdownNow();
+            // Direct buffers are only freed once they are unreachable
+            buffers.clear();
+        }
+    }
+
+    private static class PendingRead {
+        private final ByteBuffer buffer;
+        private final long position;
+        private Future<Integer> future;
+
+        private PendingRead(ByteBuffer buffer, long position, Future<Integer> future) {
+            this.buffer = buffer;
+            this.position = position;
+            this.future = future;
+        }
+
+        /**
+         * Wait for the read to complete, reading the remainder if it came back short
+         */
+        private void await(AsynchronousFileChannel channel) throws IOException {
+            try {
+                while (true) {
+                    if (future.get() < 0) {
+                        throw new IOException("Unexpected end of plot file");
+                    }
+                    if (!buffer.hasRemaining()) {
+                        return;
+                    }
+                    future = channel.read(buffer, position + buffer.position());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading plot file");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package burst.kit.crypto.plot;
+
+/**
+ * The best (lowest) deadline found in a batch of scoops.
+ */
+public class BestDeadline {
+    private final long nonce;
+    private final long deadline;
+
+    public BestDeadline(long nonce, long deadline) {
+        this.nonce = nonce;
+        this.deadline = deadline;
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    /**
+     * @return The deadline, an unsigned value
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public String toString() {
+        return "BestDeadline{nonce=" + Long.toUnsignedString(nonce) + ", deadline=" + Long.toUnsignedString(deadline) + "}";
+    }
+}
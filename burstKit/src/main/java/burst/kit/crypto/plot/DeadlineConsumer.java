@@ -0,0 +1,13 @@
+package burst.kit.crypto.plot;
+
+/**
+ * Receives deadlines found while scanning a buffer of scoops.
+ */
+@FunctionalInterface
+public interface DeadlineConsumer {
+    /**
+     * @param nonce The nonce the scoop belongs to
+     * @param deadline The deadline of that nonce, an unsigned value
+     */
+    void onDeadline(long nonce, long deadline);
+}
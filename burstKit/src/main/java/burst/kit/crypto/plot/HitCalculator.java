@@ -0,0 +1,39 @@
+package burst.kit.crypto.plot;
+
+import java.math.BigInteger;
+
+/**
+ * Calculates hits against a single generation signature. The generation signature is only hashed once,
+ * when the calculator is created, and each scoop is then hashed from that saved state.
+ *
+ * Instances are not thread safe - create one per thread.
+ */
+public interface HitCalculator {
+    /**
+     * @return The generation signature this calculator is bound to
+     */
+    byte[] getGenerationSignature();
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop)
+     * @param scoopData The scoop data, usually read from a disk.
+     * @return The hit of that scoop
+     */
+    BigInteger calculateHit(byte[] scoopData);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop)
+     * @param scoopData An array containing the scoop data
+     * @param offset The offset of the 64 byte scoop in scoopData
+     * @return The hit of that scoop
+     */
+    BigInteger calculateHit(byte[] scoopData, int offset);
+
+    /**
+     * Calculate the hit (raw value obtained from a scoop) without allocating
+     * @param scoopData An array containing the scoop data
+     * @param offset The offset of the 64 byte scoop in scoopData
+     * @return The hit of that scoop, an unsigned value
+     */
+    long calculateHitUnsigned(byte[] scoopData, int offset);
+}
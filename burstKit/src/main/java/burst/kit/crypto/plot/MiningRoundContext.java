@@ -0,0 +1,61 @@
+package burst.kit.crypto.plot;
+
+import burst.kit.entity.response.MiningInfo;
+
+/**
+ * Everything about a block that is needed to check scoops against it, computed once when the block's mining info
+ * arrives and then shared by everything scanning or verifying nonces for that block. Instances are immutable and thread safe.
+ */
+public final class MiningRoundContext {
+    private final MiningInfo miningInfo;
+    private final byte[] genSig;
+    private final long height;
+    private final long baseTarget;
+    private final int scoop;
+
+    /**
+     * @param plotCalculator The plot calculator to calculate the scoop with
+     * @param miningInfo The mining info of the block
+     */
+    public MiningRoundContext(PlotCalculator plotCalculator, MiningInfo miningInfo) {
+        this.miningInfo = miningInfo;
+        this.genSig = miningInfo.getGenerationSignature().clone();
+        this.height = miningInfo.getHeight();
+        this.baseTarget = miningInfo.getBaseTarget();
+        this.scoop = plotCalculator.calculateScoop(genSig, height);
+    }
+
+    public MiningInfo getMiningInfo() {
+        return miningInfo;
+    }
+
+    /**
+     * @return A copy of the generation signature
+     */
+    public byte[] getGenerationSignature() {
+        return genSig.clone();
+    }
+
+    public long getHeight() {
+        return height;
+    }
+
+    public long getBaseTarget() {
+        return baseTarget;
+    }
+
+    /**
+     * @return The scoop that every nonce must be checked at for this block
+     */
+    public int getScoop() {
+        return scoop;
+    }
+
+    /**
+     * @param hit The hit of a scoop, an unsigned value
+     * @return The deadline of that hit for this block, an unsigned value
+     */
+    public long getDeadline(long hit) {
+        return Long.divideUnsigned(hit, baseTarget);
+    }
+}
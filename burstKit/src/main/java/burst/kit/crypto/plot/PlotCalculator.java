@@ -1,11 +1,19 @@
 package burst.kit.crypto.plot;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 public interface PlotCalculator {
     byte[] calculateGenerationSignature(byte[] lastGenSig, long lastGenId);
     int calculateScoop(byte[] genSig, long height);
     BigInteger calculateHit(long accountId, long nonce, byte[] genSig, int scoop, int pocVersion);
     BigInteger calculateHit(long accountId, long nonce, byte[] genSig, byte[] scoopData);
+    long calculateHitUnsigned(long accountId, long nonce, byte[] genSig, int scoop, int pocVersion);
+    long calculateHitUnsigned(long accountId, long nonce, byte[] genSig, byte[] scoopData);
+    BigInteger[] calculateHits(long accountId, long startNonce, int nonceCount, byte[] genSig, int scoop, int pocVersion);
+    HitCalculator getHitCalculator(byte[] genSig);
+    BestDeadline calculateBestDeadline(ByteBuffer scoops, long startNonce, byte[] genSig, long baseTarget);
+    void calculateDeadlines(ByteBuffer scoops, long startNonce, byte[] genSig, long baseTarget, long maxDeadline, DeadlineConsumer consumer);
     BigInteger calculateDeadline(long accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion);
+    long calculateDeadlineUnsigned(long accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion);
 }
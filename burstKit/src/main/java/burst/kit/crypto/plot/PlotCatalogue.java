@@ -0,0 +1,449 @@
+package burst.kit.crypto.plot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A catalogue of the PoC2 plot files in a set of directories, which finds incomplete plot files and plot files
+ * whose nonces overlap, and keeps track of how long each file takes to scan so that slow drives can be found.
+ *
+ * The catalogue can be saved to a compact binary index and loaded again at startup. {@link #refresh()} then only
+ * lists the directories that have changed since the index was saved, instead of parsing every plot file name again,
+ * and only checks the plot files that are still incomplete rather than every plot file.
+ *
+ * All methods are thread safe.
+ */
+public class PlotCatalogue {
+    private static final int INDEX_MAGIC = 0x504c4331;
+    private static final int INDEX_VERSION = 1;
+    /**
+     * The coarsest modified time resolution of the filesystems plot files are kept on, which is FAT's 2 seconds
+     */
+    private static final long TIMESTAMP_RESOLUTION_MILLIS = 2000;
+
+    /**
+     * The last modified time of each directory when it was last listed, or null if it has to be listed again
+     */
+    private final Map<Path, Long> directories = new LinkedHashMap<>();
+    private final Map<Path, Entry> entries = new TreeMap<>();
+
+    /**
+     * Create an empty catalogue. Use {@link #refresh()} to find the plot files.
+     * @param directories The directories containing plot files, one per drive
+     */
+    public PlotCatalogue(Collection<Path> directories) {
+        for (Path directory : directories) {
+            this.directories.put(directory, null);
+        }
+    }
+
+    /**
+     * Load a catalogue from an index written by {@link #save(Path)}.
+     * @param index The index file
+     * @return The catalogue
+     * @throws IOException if the index cannot be read or is corrupt
+     */
+    public static PlotCatalogue load(Path index) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                throw new IOException("Not a plot catalogue index: " + index);
+            }
+            PlotCatalogue catalogue = new PlotCatalogue(Collections.emptyList());
+            int directoryCount = in.readInt();
+            for (int i = 0; i < directoryCount; i++) {
+                Path directory = Paths.get(in.readUTF());
+                long lastModified = in.readLong();
+                catalogue.directories.put(directory, lastModified == -1 ? null : lastModified);
+            }
+            int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                Path path = Paths.get(in.readUTF());
+                PlotFile plotFile = new PlotFile(in.readLong(), in.readLong(), in.readLong());
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                boolean complete = in.readBoolean();
+                long scanCount = in.readLong();
+                long totalScanNanos = in.readLong();
+                long lastScanNanos = in.readLong();
+                catalogue.entries.put(path, new Entry(path, plotFile, size, lastModified, complete, scanCount, totalScanNanos, lastScanNanos));
+            }
+            return catalogue;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt plot catalogue index: " + index, e);
+        }
+    }
+
+    /**
+     * Save the catalogue, including scan timings, to an index file. The index is replaced atomically.
+     * @param index The index file
+     * @throws IOException if the index cannot be written
+     */
+    public synchronized void save(Path index) throws IOException {
+        Path temp = index.resolveSibling(index.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(directories.size());
+            for (Map.Entry<Path, Long> directory : directories.entrySet()) {
+                out.writeUTF(directory.getKey().toString());
+                out.writeLong(directory.getValue() == null ? -1 : directory.getValue());
+            }
+            out.writeInt(entries.size());
+            for (Entry entry : entries.values()) {
+                out.writeUTF(entry.path.toString());
+                out.writeLong(entry.plotFile.getAccountId());
+                out.writeLong(entry.plotFile.getStartNonce());
+                out.writeLong(entry.plotFile.getNonces());
+                out.writeLong(entry.size);
+                out.writeLong(entry.lastModified);
+                out.writeBoolean(entry.complete);
+                out.writeLong(entry.scanCount);
+                out.writeLong(entry.totalScanNanos);
+                out.writeLong(entry.lastScanNanos);
+            }
+        }
+        Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Add a directory to the catalogue. It is listed on the next {@link #refresh()}.
+     * @param directory The directory containing plot files
+     */
+    public synchronized void addDirectory(Path directory) {
+        directories.putIfAbsent(directory, null);
+    }
+
+    /**
+     * Re-list every directory that has changed since it was last listed, without checking complete plot files.
+     * @return true if any directory was listed or became unavailable
+     * @see #refresh(boolean)
+     */
+    public boolean refresh() {
+        return refresh(false);
+    }
+
+    /**
+     * Re-list every directory that has changed since it was last listed. Adding, removing or finishing a plot file
+     * modifies its directory, as does creating or removing the progress file of a plot file being written.
+     * A plot file that is written in place does not, so the size and modified time of each incomplete plot file are
+     * checked as well. A directory that was modified within the filesystem's timestamp resolution of being listed
+     * is always listed again, as a later change could leave its modified time the same.
+     *
+     * A directory that cannot be read, such as one on a drive that is not mounted, does not stop the others from
+     * being refreshed. Its plot files are marked incomplete until it can be listed again.
+     * @param verifyFiles Whether to check the size and modified time of every plot file, not only the incomplete ones,
+     *                    which finds complete plot files that have been modified in place at the cost of a stat per file
+     * @return true if any directory was listed or became unavailable
+     */
+    public synchronized boolean refresh(boolean verifyFiles) {
+        Map<Path, List<Entry>> byDirectory = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            byDirectory.computeIfAbsent(entry.path.getParent(), directory -> new ArrayList<>()).add(entry);
+        }
+        boolean changed = false;
+        for (Map.Entry<Path, Long> directory : directories.entrySet()) {
+            List<Entry> directoryEntries = byDirectory.getOrDefault(directory.getKey(), Collections.emptyList());
+            try {
+                long lastModified = Files.getLastModifiedTime(directory.getKey()).toMillis();
+                if (directory.getValue() != null && directory.getValue() == lastModified && isUnchanged(directoryEntries, verifyFiles)) {
+                    continue;
+                }
+                long listed = System.currentTimeMillis();
+                listDirectory(directory.getKey(), directoryEntries);
+                directory.setValue(listed - lastModified < TIMESTAMP_RESOLUTION_MILLIS ? null : lastModified);
+                changed = true;
+            } catch (IOException e) {
+                // Such as if the drive is not mounted. List it again once it can be read.
+                directory.setValue(null);
+                for (Entry entry : directoryEntries) {
+                    if (entry.complete) {
+                        entries.put(entry.path, new Entry(entry.path, entry.plotFile, entry.size, entry.lastModified, false,
+                                entry.scanCount, entry.totalScanNanos, entry.lastScanNanos));
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return Whether the plot files of a directory that are checked still exist with the same size and modified time
+     */
+    private static boolean isUnchanged(List<Entry> directoryEntries, boolean verifyFiles) {
+        for (Entry entry : directoryEntries) {
+            if (entry.complete && !verifyFiles) continue;
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(entry.path, BasicFileAttributes.class);
+                if (attributes.size() != entry.size || attributes.lastModifiedTime().toMillis() != entry.lastModified) {
+                    return false;
+                }
+            } catch (IOException e) {
+                // Such as if the file has been deleted
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void listDirectory(Path directory, List<Entry> directoryEntries) throws IOException {
+        Map<Path, Entry> previous = new HashMap<>();
+        for (Entry entry : directoryEntries) {
+            previous.put(entry.path, entry);
+        }
+        // Only replace the directory's entries once it has been listed, so that they are kept if listing fails
+        Map<Path, Entry> listed = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+            for (Path path : files) {
+                PlotFile plotFile;
+                try {
+                    plotFile = PlotFile.parse(path.getFileName().toString());
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                long size = Files.size(path);
+                boolean complete = size >= plotFile.getSize() && !Files.exists(PlotWriter.getProgressPath(path));
+                Entry old = previous.get(path);
+                listed.put(path, old == null
+                        ? new Entry(path, plotFile, size, Files.getLastModifiedTime(path).toMillis(), complete, 0, 0, 0)
+                        : new Entry(path, plotFile, size, Files.getLastModifiedTime(path).toMillis(), complete, old.scanCount, old.totalScanNanos, old.lastScanNanos));
+            }
+        }
+        entries.keySet().removeAll(previous.keySet());
+        entries.putAll(listed);
+    }
+
+    public synchronized List<Path> getDirectories() {
+        return new ArrayList<>(directories.keySet());
+    }
+
+    /**
+     * @return Every plot file, complete or not
+     */
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * @return The plot files which are complete and can be mined
+     */
+    public synchronized List<Entry> getCompleteEntries() {
+        List<Entry> complete = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.complete) complete.add(entry);
+        }
+        return complete;
+    }
+
+    /**
+     * @return The plot files which are shorter than their name says, or are still being written
+     */
+    public synchronized List<Entry> getIncompleteEntries() {
+        List<Entry> incomplete = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (!entry.complete) incomplete.add(entry);
+        }
+        return incomplete;
+    }
+
+    /**
+     * Find plot files of the same account whose nonce ranges overlap. The overlapping nonces are scanned once per file,
+     * which wastes reads and can only ever find the same deadlines.
+     * @return Every overlapping pair of plot files
+     */
+    public synchronized List<Overlap> findOverlaps() {
+        Map<Long, List<Entry>> byAccount = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            byAccount.computeIfAbsent(entry.plotFile.getAccountId(), accountId -> new ArrayList<>()).add(entry);
+        }
+        List<Overlap> overlaps = new ArrayList<>();
+        for (List<Entry> accountEntries : byAccount.values()) {
+            accountEntries.sort(Comparator.comparing(entry -> entry.plotFile.getStartNonce(), Long::compareUnsigned));
+            // The earlier files which end after the start of the current file, which it overlaps
+            List<Entry> active = new ArrayList<>();
+            for (Entry entry : accountEntries) {
+                active.removeIf(earlier -> Long.compareUnsigned(endNonce(earlier), entry.plotFile.getStartNonce()) <= 0);
+                for (Entry earlier : active) {
+                    overlaps.add(new Overlap(earlier, entry));
+                }
+                active.add(entry);
+            }
+        }
+        return overlaps;
+    }
+
+    private static long endNonce(Entry entry) {
+        return entry.plotFile.getStartNonce() + entry.plotFile.getNonces();
+    }
+
+    /**
+     * Record how long a plot file took to scan. Results for files that are not in the catalogue are ignored.
+     * This can be passed directly as the listener of {@link PlotFileScanner#scan(MiningRoundContext, java.util.function.Consumer)}.
+     * @param result The scan result
+     */
+    public synchronized void recordScan(PlotScanResult result) {
+        Entry entry = entries.get(result.getPath());
+        if (entry != null) {
+            entries.put(entry.path, new Entry(entry.path, entry.plotFile, entry.size, entry.lastModified, entry.complete,
+                    entry.scanCount + 1, entry.totalScanNanos + result.getScanTimeNanos(), result.getScanTimeNanos()));
+        }
+    }
+
+    /**
+     * @return The average rate each directory's scoop regions have been read at, in bytes per second.
+     * Directories which have not been scanned are left out.
+     */
+    public synchronized Map<Path, Double> getDirectoryThroughput() {
+        Map<Path, long[]> totals = new LinkedHashMap<>();
+        for (Entry entry : entries.values()) {
+            if (entry.scanCount == 0) continue;
+            long[] total = totals.computeIfAbsent(entry.path.getParent(), directory -> new long[2]);
+            total[0] += entry.plotFile.getScoopLength() * entry.scanCount;
+            total[1] += entry.totalScanNanos;
+        }
+        Map<Path, Double> throughput = new LinkedHashMap<>();
+        for (Map.Entry<Path, long[]> total : totals.entrySet()) {
+            throughput.put(total.getKey(), total.getValue()[0] * 1e9 / Math.max(1, total.getValue()[1]));
+        }
+        return throughput;
+    }
+
+    /**
+     * @param fraction How slow a directory must be to be reported, as a fraction of the median throughput, such as 0.5
+     * @return The directories which have been scanned at less than that fraction of the median directory's throughput
+     */
+    public synchronized List<Path> getSlowDirectories(double fraction) {
+        Map<Path, Double> throughput = getDirectoryThroughput();
+        if (throughput.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Double> sorted = new ArrayList<>(throughput.values());
+        Collections.sort(sorted);
+        double median = sorted.get(sorted.size() / 2);
+        List<Path> slow = new ArrayList<>();
+        for (Map.Entry<Path, Double> directory : throughput.entrySet()) {
+            if (directory.getValue() < median * fraction) {
+                slow.add(directory.getKey());
+            }
+        }
+        return slow;
+    }
+
+    /**
+     * A plot file in the catalogue
+     */
+    public static final class Entry {
+        private final Path path;
+        private final PlotFile plotFile;
+        private final long size;
+        private final long lastModified;
+        private final boolean complete;
+        private final long scanCount;
+        private final long totalScanNanos;
+        private final long lastScanNanos;
+
+        private Entry(Path path, PlotFile plotFile, long size, long lastModified, boolean complete, long scanCount, long totalScanNanos, long lastScanNanos) {
+            this.path = path;
+            this.plotFile = plotFile;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.complete = complete;
+            this.scanCount = scanCount;
+            this.totalScanNanos = totalScanNanos;
+            this.lastScanNanos = lastScanNanos;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public PlotFile getPlotFile() {
+            return plotFile;
+        }
+
+        /**
+         * @return The size of the file on disk when it was last checked
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return Whether the file is as long as its name says and is not still being written
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public long getScanCount() {
+            return scanCount;
+        }
+
+        /**
+         * @return The average time to scan the file, or 0 if it has not been scanned
+         */
+        public long getAverageScanNanos() {
+            return scanCount == 0 ? 0 : totalScanNanos / scanCount;
+        }
+
+        public long getLastScanNanos() {
+            return lastScanNanos;
+        }
+
+        @Override
+        public String toString() {
+            return path.toString();
+        }
+    }
+
+    /**
+     * Two plot files of the same account with overlapping nonce ranges
+     */
+    public static final class Overlap {
+        private final Entry first;
+        private final Entry second;
+
+        private Overlap(Entry first, Entry second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        /**
+         * @return The plot file with the lower start nonce
+         */
+        public Entry getFirst() {
+            return first;
+        }
+
+        public Entry getSecond() {
+            return second;
+        }
+
+        @Override
+        public String toString() {
+            return first + " overlaps " + second;
+        }
+    }
+}
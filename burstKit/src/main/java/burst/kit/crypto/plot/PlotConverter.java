@@ -0,0 +1,326 @@
+package burst.kit.crypto.plot;
+
+import burst.kit.crypto.plot.impl.MiningPlot;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Converts PoC1 plot files, named {@code <accountId>_<startNonce>_<nonces>_<stagger>}, into optimized PoC2 plot files.
+ *
+ * A PoC1 plot file is made of groups of {@code stagger} nonces, each group laid out scoop-major. Unless the stagger
+ * equals the number of nonces (an optimized file), reading one scoop for every nonce takes one seek per group.
+ * Converting produces a single scoop-major group, and moves the second hash of every scoop into its PoC2 position.
+ *
+ * All conversions work through chunks of a bounded number of nonces, and can be resumed after being interrupted.
+ */
+public class PlotConverter {
+    public static final int DEFAULT_CHUNK_NONCES = 128;
+
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final int JOURNAL_MAGIC = 0x504c4a31;
+    private static final int JOURNAL_HEADER_LENGTH = 32;
+    private static final int STATE_CONVERTING = 0;
+    private static final int STATE_DONE = 1;
+
+    private final int chunkNonces;
+
+    public PlotConverter() {
+        this(DEFAULT_CHUNK_NONCES);
+    }
+
+    /**
+     * @param chunkNonces The number of nonces to hold in memory at once. Each nonce takes up to 512 KiB while converting.
+     */
+    public PlotConverter(int chunkNonces) {
+        if (chunkNonces <= 0 || chunkNonces > PlotWriter.MAX_CHUNK_NONCES) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + PlotWriter.MAX_CHUNK_NONCES + " nonces, was " + chunkNonces);
+        }
+        this.chunkNonces = chunkNonces;
+    }
+
+    /**
+     * Convert a PoC1 plot file into a new PoC2 plot file, leaving the source untouched.
+     * If the target already exists and is still being converted, conversion resumes where it stopped.
+     * @param source The PoC1 plot file
+     * @param targetDirectory The directory to write the PoC2 plot file into
+     * @return The PoC2 plot file
+     * @throws IOException if reading or writing fails, or if the thread was interrupted
+     */
+    public PlotFile convert(Path source, Path targetDirectory) throws IOException {
+        Poc1Layout layout = Poc1Layout.parse(source);
+        PlotFile plotFile = layout.toPlotFile();
+        Path target = targetDirectory.resolve(plotFile.getFileName());
+        Path progressPath = PlotWriter.getProgressPath(target);
+
+        long done;
+        if (Files.exists(progressPath)) {
+            done = PlotWriter.readProgress(progressPath);
+        } else if (Files.exists(target)) {
+            if (Files.size(target) != plotFile.getSize()) {
+                throw new IOException("Plot file " + target + " exists with the wrong size and has no progress to resume from");
+            }
+            return plotFile;
+        } else {
+            PlotWriter.writeProgress(progressPath, 0);
+            done = 0;
+        }
+
+        byte[] chunk = new byte[(int) Math.min(chunkNonces, layout.nonces) * MiningPlot.PLOT_SIZE];
+        byte[] raw = layout.stagger <= chunkNonces ? new byte[chunk.length] : null;
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             RandomAccessFile file = new RandomAccessFile(target.toFile(), "rw")) {
+            if (in.size() != plotFile.getSize()) {
+                throw new IOException("Plot file " + source + " is incomplete");
+            }
+            file.setLength(plotFile.getSize());
+            FileChannel out = file.getChannel();
+            while (done < layout.nonces) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Interrupted while converting " + source);
+                }
+                int count = layout.chunkLength(done, chunkNonces);
+                layout.readChunk(in, done, count, raw, chunk);
+                swapSecondHashes(chunk, count);
+                PlotWriter.writeChunk(out, plotFile, done, count, chunk);
+                out.force(false);
+                done += count;
+                PlotWriter.writeProgress(progressPath, done);
+            }
+        }
+        Files.delete(progressPath);
+        return plotFile;
+    }
+
+    /**
+     * Convert an optimized PoC1 plot file into a PoC2 plot file in place, then rename it to its PoC2 name.
+     *
+     * This only has to swap hashes within the file, so needs no extra disk space. Every chunk's original contents
+     * are recorded in a journal next to the file before it is rewritten, so if conversion is interrupted,
+     * running it again rolls back the unfinished chunk and resumes. If it was interrupted after renaming,
+     * running it again deletes the journal that was left behind.
+     * @param source The optimized PoC1 plot file
+     * @return The PoC2 plot file
+     * @throws IllegalArgumentException if the source is not optimized. Use {@link #convert(Path, Path)} instead.
+     * @throws IOException if reading or writing fails, or if the thread was interrupted
+     */
+    public PlotFile convertInPlace(Path source) throws IllegalArgumentException, IOException {
+        Poc1Layout layout = Poc1Layout.parse(source);
+        if (layout.stagger != layout.nonces) {
+            throw new IllegalArgumentException("Only optimized plot files can be converted in place: " + source);
+        }
+        PlotFile plotFile = layout.toPlotFile();
+        Path target = source.resolveSibling(plotFile.getFileName());
+        Path journalPath = source.resolveSibling(source.getFileName() + JOURNAL_SUFFIX);
+        if (!Files.exists(source) && Files.exists(target)) {
+            // Interrupted after renaming, so only the journal is left to delete
+            Files.deleteIfExists(journalPath);
+            return plotFile;
+        }
+        // Each step swaps one range of nonces between scoop s and scoop 4095 - s
+        int rangeNonces = (int) Math.min(layout.nonces, (long) chunkNonces * MiningPlot.PLOT_SIZE / (4 * MiningPlot.SCOOP_SIZE));
+        byte[] low = new byte[rangeNonces * MiningPlot.SCOOP_SIZE];
+        byte[] high = new byte[rangeNonces * MiningPlot.SCOOP_SIZE];
+
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() != plotFile.getSize()) {
+                throw new IOException("Plot file " + source + " is incomplete");
+            }
+            int scoop = 0;
+            long nonce = 0;
+            if (Files.exists(journalPath)) {
+                ByteBuffer journal = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+                if (journal.remaining() < JOURNAL_HEADER_LENGTH || journal.getInt() != JOURNAL_MAGIC) {
+                    throw new IOException("Corrupt plot conversion journal " + journalPath);
+                }
+                int state = journal.getInt();
+                scoop = (int) journal.getLong();
+                nonce = journal.getLong();
+                int count = journal.getInt();
+                if (state == STATE_DONE) {
+                    scoop = MiningPlot.SCOOPS_PER_PLOT / 2;
+                } else if (count > 0) {
+                    // Roll back the step that was in progress
+                    journal.position(JOURNAL_HEADER_LENGTH);
+                    journal.get(low, 0, count * MiningPlot.SCOOP_SIZE);
+                    journal.get(high, 0, count * MiningPlot.SCOOP_SIZE);
+                    writeFully(channel, ByteBuffer.wrap(low, 0, count * MiningPlot.SCOOP_SIZE), plotFile.getScoopOffset(scoop) + nonce * MiningPlot.SCOOP_SIZE);
+                    writeFully(channel, ByteBuffer.wrap(high, 0, count * MiningPlot.SCOOP_SIZE), plotFile.getScoopOffset(MiningPlot.SCOOPS_PER_PLOT - 1 - scoop) + nonce * MiningPlot.SCOOP_SIZE);
+                    channel.force(false);
+                }
+            }
+
+            for (; scoop < MiningPlot.SCOOPS_PER_PLOT / 2; scoop++, nonce = 0) {
+                long lowOffset = plotFile.getScoopOffset(scoop);
+                long highOffset = plotFile.getScoopOffset(MiningPlot.SCOOPS_PER_PLOT - 1 - scoop);
+                for (; nonce < layout.nonces; nonce += rangeNonces) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Interrupted while converting " + source);
+                    }
+                    int count = (int) Math.min(rangeNonces, layout.nonces - nonce);
+                    int length = count * MiningPlot.SCOOP_SIZE;
+                    readFully(channel, ByteBuffer.wrap(low, 0, length), lowOffset + nonce * MiningPlot.SCOOP_SIZE);
+                    readFully(channel, ByteBuffer.wrap(high, 0, length), highOffset + nonce * MiningPlot.SCOOP_SIZE);
+                    writeJournal(journalPath, STATE_CONVERTING, scoop, nonce, count, low, high);
+                    for (int i = 0; i < length; i += MiningPlot.SCOOP_SIZE) {
+                        swapHash(low, i + MiningPlot.HASH_SIZE, high, i + MiningPlot.HASH_SIZE);
+                    }
+                    writeFully(channel, ByteBuffer.wrap(low, 0, length), lowOffset + nonce * MiningPlot.SCOOP_SIZE);
+                    writeFully(channel, ByteBuffer.wrap(high, 0, length), highOffset + nonce * MiningPlot.SCOOP_SIZE);
+                    channel.force(false);
+                }
+            }
+        }
+        // Record that the contents are converted before renaming, so that the hashes are never swapped back
+        writeJournal(journalPath, STATE_DONE, 0, 0, 0, low, high);
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(target);
+        Files.delete(journalPath);
+        return plotFile;
+    }
+
+    /**
+     * Swap the second hash of scoop s with that of scoop 4095 - s, for every nonce of a scoop-major chunk
+     */
+    private static void swapSecondHashes(byte[] chunk, int count) {
+        int row = count * MiningPlot.SCOOP_SIZE;
+        for (int scoop = 0; scoop < MiningPlot.SCOOPS_PER_PLOT / 2; scoop++) {
+            int low = scoop * row;
+            int high = (MiningPlot.SCOOPS_PER_PLOT - 1 - scoop) * row;
+            for (int i = 0; i < row; i += MiningPlot.SCOOP_SIZE) {
+                swapHash(chunk, low + i + MiningPlot.HASH_SIZE, chunk, high + i + MiningPlot.HASH_SIZE);
+            }
+        }
+    }
+
+    private static void swapHash(byte[] a, int aOffset, byte[] b, int bOffset) {
+        for (int i = 0; i < MiningPlot.HASH_SIZE; i++) {
+            byte tmp = a[aOffset + i];
+            a[aOffset + i] = b[bOffset + i];
+            b[bOffset + i] = tmp;
+        }
+    }
+
+    private static void writeJournal(Path journalPath, int state, int scoop, long nonce, int count, byte[] low, byte[] high) throws IOException {
+        int length = count * MiningPlot.SCOOP_SIZE;
+        ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_LENGTH);
+        header.putInt(JOURNAL_MAGIC).putInt(state).putLong(scoop).putLong(nonce).putInt(count).putInt(0).flip();
+        Path temp = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header, 0);
+            writeFully(channel, ByteBuffer.wrap(low, 0, length), JOURNAL_HEADER_LENGTH);
+            writeFully(channel, ByteBuffer.wrap(high, 0, length), JOURNAL_HEADER_LENGTH + length);
+            channel.force(true);
+        }
+        Files.move(temp, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(journalPath);
+    }
+
+    /**
+     * Flush the directory containing a file, so that a rename into it survives a crash
+     */
+    private static void forceDirectory(Path path) throws IOException {
+        try (FileChannel directory = FileChannel.open(path.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (AccessDeniedException e) {
+            // Directories cannot be opened on Windows, which has no way to flush them
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of plot file");
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static class Poc1Layout {
+        private final long accountId;
+        private final long startNonce;
+        private final long nonces;
+        private final long stagger;
+
+        private Poc1Layout(long accountId, long startNonce, long nonces, long stagger) {
+            this.accountId = accountId;
+            this.startNonce = startNonce;
+            this.nonces = nonces;
+            this.stagger = stagger;
+        }
+
+        private static Poc1Layout parse(Path path) {
+            String fileName = path.getFileName().toString();
+            String[] parts = fileName.split("_");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Not a PoC1 plot file name: " + fileName);
+            }
+            Poc1Layout layout;
+            try {
+                layout = new Poc1Layout(Long.parseUnsignedLong(parts[0]), Long.parseUnsignedLong(parts[1]), Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a PoC1 plot file name: " + fileName, e);
+            }
+            if (layout.nonces <= 0 || layout.stagger <= 0 || layout.nonces % layout.stagger != 0) {
+                throw new IllegalArgumentException("Invalid nonce count or stagger in plot file name: " + fileName);
+            }
+            return layout;
+        }
+
+        private PlotFile toPlotFile() {
+            return new PlotFile(accountId, startNonce, nonces);
+        }
+
+        /**
+         * @return The number of nonces in the chunk starting at {@code done}: whole groups if they fit, otherwise part of one group
+         */
+        private int chunkLength(long done, int chunkNonces) {
+            if (stagger <= chunkNonces) {
+                return (int) Math.min(chunkNonces / stagger * stagger, nonces - done);
+            }
+            long groupEnd = (done / stagger + 1) * stagger;
+            return (int) Math.min(chunkNonces, groupEnd - done);
+        }
+
+        /**
+         * Read nonces into the chunk buffer in scoop-major order: nonce n's copy of scoop s is at (s * count + n) * 64
+         */
+        private void readChunk(FileChannel channel, long done, int count, byte[] raw, byte[] chunk) throws IOException {
+            int row = count * MiningPlot.SCOOP_SIZE;
+            if (stagger <= count) {
+                // Whole groups: read them in one go and transpose in memory
+                readFully(channel, ByteBuffer.wrap(raw, 0, count * MiningPlot.PLOT_SIZE), done * MiningPlot.PLOT_SIZE);
+                int groupRow = (int) stagger * MiningPlot.SCOOP_SIZE;
+                for (int group = 0; group < count / stagger; group++) {
+                    int groupOffset = group * (int) stagger * MiningPlot.PLOT_SIZE;
+                    for (int scoop = 0; scoop < MiningPlot.SCOOPS_PER_PLOT; scoop++) {
+                        System.arraycopy(raw, groupOffset + scoop * groupRow, chunk, scoop * row + group * groupRow, groupRow);
+                    }
+                }
+            } else {
+                // Part of one group: read each scoop's row separately
+                long groupStart = done / stagger * stagger;
+                long groupOffset = groupStart * MiningPlot.PLOT_SIZE;
+                for (int scoop = 0; scoop < MiningPlot.SCOOPS_PER_PLOT; scoop++) {
+                    long position = groupOffset + (scoop * stagger + done - groupStart) * MiningPlot.SCOOP_SIZE;
+                    readFully(channel, ByteBuffer.wrap(chunk, scoop * row, row), position);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package burst.kit.crypto.plot;
+
+import burst.kit.crypto.plot.impl.MiningPlot;
+
+import java.util.Objects;
+
+/**
+ * Describes a PoC2 plot file, named {@code <accountId>_<startNonce>_<nonces>}.
+ *
+ * PoC2 plot files are scoop-major: all of the nonces' copies of scoop 0 come first, then scoop 1 and so on,
+ * so that a miner can read the whole of one scoop with a single sequential read.
+ */
+public final class PlotFile {
+    private final long accountId;
+    private final long startNonce;
+    private final long nonces;
+
+    public PlotFile(long accountId, long startNonce, long nonces) {
+        if (nonces <= 0) {
+            throw new IllegalArgumentException("Plot file must contain at least one nonce, had " + nonces);
+        }
+        this.accountId = accountId;
+        this.startNonce = startNonce;
+        this.nonces = nonces;
+    }
+
+    /**
+     * @param fileName The name of the plot file, without any directory
+     * @return The plot file described by that name
+     * @throws IllegalArgumentException if the name is not a valid PoC2 plot file name
+     */
+    public static PlotFile parse(String fileName) throws IllegalArgumentException {
+        String[] parts = fileName.split("_");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Not a PoC2 plot file name: " + fileName);
+        }
+        try {
+            return new PlotFile(Long.parseUnsignedLong(parts[0]), Long.parseUnsignedLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a PoC2 plot file name: " + fileName, e);
+        }
+    }
+
+    /**
+     * @return The account ID, as a signed long
+     */
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public long getStartNonce() {
+        return startNonce;
+    }
+
+    public long getNonces() {
+        return nonces;
+    }
+
+    public String getFileName() {
+        return Long.toUnsignedString(accountId) + "_" + Long.toUnsignedString(startNonce) + "_" + nonces;
+    }
+
+    /**
+     * @return The size of the complete file in bytes
+     */
+    public long getSize() {
+        return nonces * MiningPlot.PLOT_SIZE;
+    }
+
+    /**
+     * @param scoop The scoop number
+     * @return The offset in the file of the first nonce's copy of that scoop
+     */
+    public long getScoopOffset(int scoop) {
+        return scoop * nonces * MiningPlot.SCOOP_SIZE;
+    }
+
+    /**
+     * @return The length in bytes of the region holding every nonce's copy of one scoop
+     */
+    public long getScoopLength() {
+        return nonces * MiningPlot.SCOOP_SIZE;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof PlotFile)) return false;
+        PlotFile other = (PlotFile) obj;
+        return accountId == other.accountId && startNonce == other.startNonce && nonces == other.nonces;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(accountId, startNonce, nonces);
+    }
+
+    @Override
+    public String toString() {
+        return getFileName();
+    }
+}
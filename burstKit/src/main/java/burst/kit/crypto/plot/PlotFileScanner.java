@@ -0,0 +1,169 @@
+package burst.kit.crypto.plot;
+
+import burst.kit.crypto.plot.impl.MiningPlot;
+import burst.kit.entity.response.MiningInfo;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Scans PoC2 plot files for the best deadline of a block.
+ *
+ * Only the region of each file holding the block's scoop is read, which is 1/4096 of the file. That region is
+ * memory mapped and evaluated in windows, so nothing is read into the Java heap other than one batch of scoops at a time.
+ *
+ * Each directory is expected to be on its own drive, and is scanned by its own thread, so that drives are read in
+ * parallel while each drive is read sequentially. Plot files that are still being written by {@link PlotWriter} are skipped.
+ */
+public class PlotFileScanner implements AutoCloseable {
+    private static final int WINDOW_NONCES = 1 << 16; // 4 MiB of scoops per mapping
+
+    private final PlotCalculator plotCalculator;
+    private final List<Path> directories;
+    private final ExecutorService executor;
+
+    /**
+     * @param plotCalculator The plot calculator to evaluate scoops with
+     * @param directories The directories containing plot files, one per drive
+     */
+    public PlotFileScanner(PlotCalculator plotCalculator, Collection<Path> directories) {
+        if (directories.isEmpty()) {
+            throw new IllegalArgumentException("Must have at least one plot directory");
+        }
+        this.plotCalculator = plotCalculator;
+        this.directories = Collections.unmodifiableList(new ArrayList<>(directories));
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(directories.size(), runnable -> {
+            Thread thread = new Thread(runnable, "plot-scanner-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public PlotCalculator getPlotCalculator() {
+        return plotCalculator;
+    }
+
+    public List<Path> getDirectories() {
+        return directories;
+    }
+
+    /**
+     * Scan every plot file for the best deadline of a block. Blocks until every drive has been scanned.
+     * Interrupting the calling thread stops the scan.
+     * @param round The block to scan for
+     * @param listener Called as soon as each file has been scanned, on that drive's scanning thread
+     * @return The best deadline of each plot file
+     * @throws IOException if reading a plot file fails, or if the scan was interrupted
+     */
+    public List<PlotScanResult> scan(MiningRoundContext round, Consumer<PlotScanResult> listener) throws IOException {
+        byte[] genSig = round.getGenerationSignature();
+        long baseTarget = round.getBaseTarget();
+        int scoop = round.getScoop();
+
+        List<Future<List<PlotScanResult>>> tasks = new ArrayList<>(directories.size());
+        for (Path directory : directories) {
+            tasks.add(executor.submit(() -> scanDirectory(directory, genSig, scoop, baseTarget, listener)));
+        }
+        List<PlotScanResult> results = new ArrayList<>();
+        try {
+            for (Future<List<PlotScanResult>> task : tasks) {
+                results.addAll(task.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while scanning plot files");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            for (Future<?> task : tasks) {
+                task.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    public List<PlotScanResult> scan(MiningInfo miningInfo, Consumer<PlotScanResult> listener) throws IOException {
+        return scan(new MiningRoundContext(plotCalculator, miningInfo), listener);
+    }
+
+    public List<PlotScanResult> scan(MiningInfo miningInfo) throws IOException {
+        return scan(miningInfo, result -> {});
+    }
+
+    private List<PlotScanResult> scanDirectory(Path directory, byte[] genSig, int scoop, long baseTarget, Consumer<PlotScanResult> listener) throws IOException {
+        List<PlotScanResult> results = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+            for (Path path : files) {
+                PlotFile plotFile;
+                try {
+                    plotFile = PlotFile.parse(path.getFileName().toString());
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                if (Files.exists(PlotWriter.getProgressPath(path))) {
+                    continue;
+                }
+                PlotScanResult result = scanFile(path, plotFile, genSig, scoop, baseTarget);
+                if (result != null) {
+                    results.add(result);
+                    listener.accept(result);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Find the best deadline in one plot file. Called on the scanning thread of the file's directory.
+     * @return The result, or null if the file is incomplete
+     */
+    protected PlotScanResult scanFile(Path path, PlotFile plotFile, byte[] genSig, int scoop, long baseTarget) throws IOException {
+        long start = System.nanoTime();
+        long bestNonce = 0;
+        long bestDeadline = -1;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < plotFile.getSize()) {
+                return null;
+            }
+            long offset = plotFile.getScoopOffset(scoop);
+            for (long done = 0; done < plotFile.getNonces(); done += WINDOW_NONCES) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Interrupted while scanning " + path);
+                }
+                int count = (int) Math.min(WINDOW_NONCES, plotFile.getNonces() - done);
+                MappedByteBuffer scoops = channel.map(FileChannel.MapMode.READ_ONLY, offset + done * MiningPlot.SCOOP_SIZE, (long) count * MiningPlot.SCOOP_SIZE);
+                BestDeadline best = plotCalculator.calculateBestDeadline(scoops, plotFile.getStartNonce() + done, genSig, baseTarget);
+                if (done == 0 || Long.compareUnsigned(best.getDeadline(), bestDeadline) < 0) {
+                    bestNonce = best.getNonce();
+                    bestDeadline = best.getDeadline();
+                }
+            }
+        }
+        return new PlotScanResult(path, plotFile, bestNonce, bestDeadline, System.nanoTime() - start);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
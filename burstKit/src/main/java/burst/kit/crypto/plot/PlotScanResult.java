@@ -0,0 +1,60 @@
+package burst.kit.crypto.plot;
+
+import java.nio.file.Path;
+
+/**
+ * The best deadline found in one plot file for one block.
+ */
+public class PlotScanResult {
+    private final Path path;
+    private final PlotFile plotFile;
+    private final long nonce;
+    private final long deadline;
+    private final long scanTimeNanos;
+
+    public PlotScanResult(Path path, PlotFile plotFile, long nonce, long deadline, long scanTimeNanos) {
+        this.path = path;
+        this.plotFile = plotFile;
+        this.nonce = nonce;
+        this.deadline = deadline;
+        this.scanTimeNanos = scanTimeNanos;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public PlotFile getPlotFile() {
+        return plotFile;
+    }
+
+    /**
+     * @return The account ID of the plot file, as a signed long
+     */
+    public long getAccountId() {
+        return plotFile.getAccountId();
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    /**
+     * @return The deadline, an unsigned value
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @return How long it took to read and evaluate the scoop region of the file
+     */
+    public long getScanTimeNanos() {
+        return scanTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "PlotScanResult{" + plotFile + ", nonce=" + Long.toUnsignedString(nonce) + ", deadline=" + Long.toUnsignedString(deadline) + "}";
+    }
+}
@@ -0,0 +1,191 @@
+package burst.kit.crypto.plot;
+
+import burst.kit.crypto.hash.shabal.Shabal256Lanes;
+import burst.kit.crypto.plot.impl.MiningPlot;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Writes PoC2 plot files.
+ *
+ * Nonces are generated in chunks across a {@link ForkJoinPool} and transposed in memory into scoop-major order,
+ * so that each chunk is written with one large write per scoop. With a chunk size that is a multiple of 64 nonces
+ * and a plot file size that is a multiple of 64 nonces, every write is aligned to 4096 bytes.
+ *
+ * Progress is recorded next to the plot file in a {@code .progress} file after every chunk has reached the disk,
+ * so writing an interrupted plot file again resumes from the last complete chunk.
+ */
+public class PlotWriter {
+    public static final int DEFAULT_CHUNK_NONCES = 256;
+    public static final int MAX_CHUNK_NONCES = Integer.MAX_VALUE / MiningPlot.PLOT_SIZE;
+
+    private static final int LANES = 16;
+    private static final String PROGRESS_SUFFIX = ".progress";
+
+    private final ForkJoinPool pool;
+    private final int chunkNonces;
+
+    public PlotWriter() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_NONCES);
+    }
+
+    /**
+     * @param pool The pool to generate nonces on
+     * @param chunkNonces The number of nonces to generate between writes. Each chunk holds 256 KiB per nonce in memory.
+     */
+    public PlotWriter(ForkJoinPool pool, int chunkNonces) {
+        if (chunkNonces <= 0 || chunkNonces > MAX_CHUNK_NONCES) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + MAX_CHUNK_NONCES + " nonces, was " + chunkNonces);
+        }
+        this.pool = pool;
+        this.chunkNonces = chunkNonces;
+    }
+
+    /**
+     * Write a plot file, or finish writing it if a previous attempt was interrupted.
+     * A complete plot file that already exists is left untouched.
+     * @param directory The directory to write the plot file into
+     * @param plotFile The plot file to write
+     * @throws IOException if writing fails, or if the thread was interrupted
+     */
+    public void writePlot(Path directory, PlotFile plotFile) throws IOException {
+        Path path = directory.resolve(plotFile.getFileName());
+        Path progressPath = getProgressPath(path);
+
+        long done;
+        if (Files.exists(progressPath)) {
+            done = readProgress(progressPath);
+        } else if (Files.exists(path)) {
+            if (Files.size(path) != plotFile.getSize()) {
+                throw new IOException("Plot file " + path + " exists with the wrong size and has no progress to resume from");
+            }
+            return;
+        } else {
+            // Record the progress first so that a plot file without a progress file is always complete
+            writeProgress(progressPath, 0);
+            done = 0;
+        }
+
+        byte[] chunk = new byte[(int) Math.min(chunkNonces, plotFile.getNonces()) * MiningPlot.PLOT_SIZE];
+        // The lane buffers are reused between chunks, but only for this write so that they are freed afterwards
+        Queue<Lanes> lanes = new ConcurrentLinkedQueue<>();
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(plotFile.getSize());
+            FileChannel channel = file.getChannel();
+            while (done < plotFile.getNonces()) {
+                int count = (int) Math.min(chunkNonces, plotFile.getNonces() - done);
+                generateChunk(plotFile.getAccountId(), plotFile.getStartNonce() + done, count, chunk, lanes);
+                writeChunk(channel, plotFile, done, count, chunk);
+                channel.force(false);
+                done += count;
+                writeProgress(progressPath, done);
+            }
+        }
+        Files.delete(progressPath);
+    }
+
+    /**
+     * Generate nonces into the chunk buffer in scoop-major order: nonce n's copy of scoop s is at (s * count + n) * 64
+     */
+    private void generateChunk(long accountId, long startNonce, int count, byte[] chunk, Queue<Lanes> pooledLanes) throws IOException {
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i += LANES) {
+            int first = i;
+            tasks.add(pool.submit(() -> {
+                int laneCount = Math.min(LANES, count - first);
+                Lanes lanes = pooledLanes.poll();
+                if (lanes == null) {
+                    lanes = new Lanes();
+                }
+                try {
+                    // Only generate the nonces that are left in the last batch of the chunk
+                    Shabal256Lanes hasher = laneCount == LANES ? lanes.hasher : new Shabal256Lanes(laneCount);
+                    MiningPlot.generate(hasher, accountId, startNonce + first, 2, lanes.plots);
+                    for (int l = 0; l < laneCount; l++) {
+                        for (int scoop = 0; scoop < MiningPlot.SCOOPS_PER_PLOT; scoop++) {
+                            lanes.plots[l].getScoop(scoop, chunk, (scoop * count + first + l) * MiningPlot.SCOOP_SIZE);
+                        }
+                    }
+                } finally {
+                    pooledLanes.offer(lanes);
+                }
+            }));
+        }
+        try {
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            for (Future<?> task : tasks) {
+                task.cancel(false);
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while generating nonces");
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    static void writeChunk(FileChannel channel, PlotFile plotFile, long done, int count, byte[] chunk) throws IOException {
+        int length = count * MiningPlot.SCOOP_SIZE;
+        for (int scoop = 0; scoop < MiningPlot.SCOOPS_PER_PLOT; scoop++) {
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, scoop * length, length);
+            long position = plotFile.getScoopOffset(scoop) + done * MiningPlot.SCOOP_SIZE;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    /**
+     * @param path The path of a plot file
+     * @return The path of the file recording the progress of writing that plot file, which only exists until it is complete
+     */
+    static Path getProgressPath(Path path) {
+        return path.resolveSibling(path.getFileName() + PROGRESS_SUFFIX);
+    }
+
+    static long readProgress(Path progressPath) throws IOException {
+        String progress = new String(Files.readAllBytes(progressPath), StandardCharsets.UTF_8).trim();
+        try {
+            return Long.parseLong(progress);
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt plot progress file " + progressPath, e);
+        }
+    }
+
+    static void writeProgress(Path progressPath, long done) throws IOException {
+        Path temp = progressPath.resolveSibling(progressPath.getFileName() + ".tmp");
+        Files.write(temp, Long.toString(done).getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, progressPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * A hasher and the plots it generates, which are 4 MiB and so are reused between batches
+     */
+    private static final class Lanes {
+        private final Shabal256Lanes hasher = new Shabal256Lanes(LANES);
+        private final MiningPlot[] plots = new MiningPlot[LANES];
+
+        private Lanes() {
+            for (int l = 0; l < LANES; l++) {
+                plots[l] = new MiningPlot();
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package burst.kit.crypto.plot.impl;
+
+import burst.kit.crypto.hash.shabal.Shabal256;
+import burst.kit.crypto.plot.HitCalculator;
+
+import java.math.BigInteger;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.util.function.Supplier;
+
+public class HitCalculatorImpl implements HitCalculator {
+    private final byte[] genSig;
+    private final MessageDigest midstate;
+    private final MessageDigest shabal256;
+    private final byte[] hash = new byte[MiningPlot.HASH_SIZE];
+
+    public HitCalculatorImpl(Supplier<MessageDigest> shabal256Supplier, byte[] genSig) {
+        this.genSig = genSig.clone();
+        this.midstate = shabal256Supplier.get();
+        this.midstate.update(genSig);
+        this.shabal256 = shabal256Supplier.get();
+    }
+
+    @Override
+    public byte[] getGenerationSignature() {
+        return genSig.clone();
+    }
+
+    @Override
+    public BigInteger calculateHit(byte[] scoopData) {
+        return calculateHit(scoopData, 0);
+    }
+
+    @Override
+    public BigInteger calculateHit(byte[] scoopData, int offset) {
+        return PlotCalculatorImpl.toUnsignedBigInteger(calculateHitUnsigned(scoopData, offset));
+    }
+
+    @Override
+    public long calculateHitUnsigned(byte[] scoopData, int offset) {
+        MessageDigest shabal256 = restore();
+        shabal256.update(scoopData, offset, MiningPlot.SCOOP_SIZE);
+        try {
+            shabal256.digest(hash, 0, MiningPlot.HASH_SIZE);
+        } catch (DigestException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        return PlotCalculatorImpl.readHit(hash, 0);
+    }
+
+    private MessageDigest restore() {
+        if (midstate instanceof Shabal256 && shabal256 instanceof Shabal256) {
+            ((Shabal256) shabal256).restore((Shabal256) midstate);
+            return shabal256;
+        }
+        try {
+            return (MessageDigest) midstate.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+}
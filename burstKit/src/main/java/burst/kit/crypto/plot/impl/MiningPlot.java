@@ -1,8 +1,9 @@
 package burst.kit.crypto.plot.impl;
 
-import burst.kit.crypto.BurstCrypto;
+import burst.kit.crypto.hash.shabal.Shabal256Lanes;
 
 import java.math.BigInteger;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.function.Supplier;
@@ -20,11 +21,110 @@ public class MiningPlot {
     private static final int HASH_CAP = 4096;
 
     private final byte[] data = new byte[PLOT_TOTAL_SIZE];
+    private final byte[] finalHash = new byte[HASH_SIZE];
+    private final byte[] hashBuffer = new byte[HASH_SIZE];
+
+    /**
+     * Create an empty plot buffer, to be filled using {@link #regenerate(MessageDigest, long, long, int)}
+     */
+    public MiningPlot() {
+    }
 
     public MiningPlot(Supplier<MessageDigest> shabal256Supplier, long addr, long nonce, int pocVersion) {
-        System.arraycopy(BurstCrypto.getInstance().longToBytes(addr), 0, data, PLOT_SIZE, 8);
-        System.arraycopy(BurstCrypto.getInstance().longToBytes(nonce), 0, data, PLOT_SIZE + 8, 8);
-        MessageDigest shabal256 = shabal256Supplier.get();
+        regenerate(shabal256Supplier.get(), addr, nonce, pocVersion);
+    }
+
+    /**
+     * Regenerate this plot in place for another nonce, reusing its buffer instead of allocating a new one.
+     * @param shabal256 The Shabal-256 digest to use. It is reset when this returns.
+     * @param addr The account ID
+     * @param nonce The nonce
+     * @param pocVersion The PoC version
+     */
+    public void regenerate(MessageDigest shabal256, long addr, long nonce, int pocVersion) {
+        hashChain(shabal256, addr, nonce);
+        finish(pocVersion);
+    }
+
+    /**
+     * Regenerate only one scoop of this plot for another nonce, which is enough to verify a deadline.
+     * The hash chain still has to be computed in full, but only the requested scoop has the final hash
+     * applied and is put into PoC order, so only that scoop is valid afterwards.
+     * @param shabal256 The Shabal-256 digest to use. It is reset when this returns.
+     * @param addr The account ID
+     * @param nonce The nonce
+     * @param scoop The scoop to regenerate
+     * @param pocVersion The PoC version
+     */
+    public void regenerateScoop(MessageDigest shabal256, long addr, long nonce, int scoop, int pocVersion) {
+        hashChain(shabal256, addr, nonce);
+        int pos = scoop * SCOOP_SIZE;
+        // In PoC2 the second hash of each scoop comes from the mirrored scoop
+        int secondHashPos = pocVersion == 2 ? (SCOOPS_PER_PLOT - 1 - scoop) * SCOOP_SIZE + HASH_SIZE : pos + HASH_SIZE;
+        for (int i = 0; i < HASH_SIZE; i++) {
+            data[pos + i] = (byte) (data[pos + i] ^ finalHash[i]);
+            data[pos + HASH_SIZE + i] = (byte) (data[secondHashPos + i] ^ finalHash[i]);
+        }
+    }
+
+    private void hashChain(MessageDigest shabal256, long addr, long nonce) {
+        writeBase(data, addr, nonce);
+        shabal256.reset();
+        try {
+            int len;
+            for (int i = PLOT_SIZE; i > 0; i -= HASH_SIZE) {
+                len = PLOT_TOTAL_SIZE - i;
+                if (len > HASH_CAP) {
+                    len = HASH_CAP;
+                }
+                shabal256.update(data, i, len);
+                shabal256.digest(data, i - HASH_SIZE, HASH_SIZE);
+            }
+            shabal256.update(data);
+            shabal256.digest(finalHash, 0, HASH_SIZE);
+        } catch (DigestException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Generate one plot per lane of the hasher, for consecutive nonces, hashing all of them in lockstep.
+     * @param shabal256 The multi-lane hasher to use
+     * @param addr The account ID
+     * @param startNonce The nonce of the first plot
+     * @param pocVersion The PoC version
+     * @return The plots for nonces startNonce to startNonce + lanes - 1
+     */
+    public static MiningPlot[] generate(Shabal256Lanes shabal256, long addr, long startNonce, int pocVersion) {
+        MiningPlot[] plots = new MiningPlot[shabal256.getLanes()];
+        for (int l = 0; l < plots.length; l++) {
+            plots[l] = new MiningPlot();
+        }
+        generate(shabal256, addr, startNonce, pocVersion, plots);
+        return plots;
+    }
+
+    /**
+     * Regenerate existing plots in place, one per lane of the hasher, for consecutive nonces, hashing all of them in lockstep.
+     * @param shabal256 The multi-lane hasher to use
+     * @param addr The account ID
+     * @param startNonce The nonce of the first plot
+     * @param pocVersion The PoC version
+     * @param plots The plots to regenerate, at least one per lane
+     */
+    public static void generate(Shabal256Lanes shabal256, long addr, long startNonce, int pocVersion, MiningPlot[] plots) {
+        int lanes = shabal256.getLanes();
+        if (plots.length < lanes) {
+            throw new IllegalArgumentException("Expected " + lanes + " plots, had " + plots.length);
+        }
+        byte[][] data = new byte[lanes][];
+        byte[][] finalHashes = new byte[lanes][];
+        for (int l = 0; l < lanes; l++) {
+            data[l] = plots[l].data;
+            finalHashes[l] = plots[l].finalHash;
+            writeBase(data[l], addr, startNonce + l);
+        }
+        shabal256.reset();
         int len;
         for (int i = PLOT_SIZE; i > 0; i -= HASH_SIZE) {
             len = PLOT_TOTAL_SIZE - i;
@@ -32,9 +132,26 @@ public class MiningPlot {
                 len = HASH_CAP;
             }
             shabal256.update(data, i, len);
-            System.arraycopy(shabal256.digest(), 0, data, i - HASH_SIZE, HASH_SIZE);
+            shabal256.digest(data, i - HASH_SIZE);
         }
-        byte[] finalHash = shabal256.digest(data);
+        shabal256.update(data, 0, PLOT_TOTAL_SIZE);
+        shabal256.digest(finalHashes, 0);
+
+        for (int l = 0; l < lanes; l++) {
+            plots[l].finish(pocVersion);
+        }
+    }
+
+    private static void writeBase(byte[] data, long addr, long nonce) {
+        for (int i = 7; i >= 0; i--) {
+            data[PLOT_SIZE + i] = (byte) addr;
+            data[PLOT_SIZE + 8 + i] = (byte) nonce;
+            addr >>= 8;
+            nonce >>= 8;
+        }
+    }
+
+    private void finish(int pocVersion) {
         for (int i = 0, j = 0; i < PLOT_SIZE; i++, j++) {
             if (j == 32) j = 0;
             data[i] = (byte) (data[i] ^ finalHash[j]);
@@ -42,7 +159,6 @@ public class MiningPlot {
 
         // PoC2 Rearrangement
         if (pocVersion == 2) {
-            byte[] hashBuffer = new byte[HASH_SIZE];
             int revPos = PLOT_SIZE - HASH_SIZE; // Start at second hash in last scoop
             for (int pos = 32; pos < (PLOT_SIZE / 2); pos += 64) { // Start at second hash in first scoop
                 System.arraycopy(data, pos, hashBuffer, 0, HASH_SIZE); // Copy low scoop second hash to buffer
@@ -57,6 +173,10 @@ public class MiningPlot {
         return Arrays.copyOfRange(data, pos * SCOOP_SIZE, (pos + 1) * SCOOP_SIZE);
     }
 
+    public void getScoop(int pos, byte[] dest, int off) {
+        System.arraycopy(data, pos * SCOOP_SIZE, dest, off, SCOOP_SIZE);
+    }
+
     public void hashScoop(MessageDigest shabal256, int pos) {
         shabal256.update(data, pos * SCOOP_SIZE, SCOOP_SIZE);
     }
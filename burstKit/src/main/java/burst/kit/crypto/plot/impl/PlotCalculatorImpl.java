@@ -1,14 +1,30 @@
 package burst.kit.crypto.plot.impl;
 
 import burst.kit.crypto.BurstCrypto;
+import burst.kit.crypto.hash.shabal.Shabal256Lanes;
+import burst.kit.crypto.plot.BestDeadline;
+import burst.kit.crypto.plot.DeadlineConsumer;
+import burst.kit.crypto.plot.HitCalculator;
 import burst.kit.crypto.plot.PlotCalculator;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.util.function.Supplier;
 
+/**
+ * Calculating the hit of a single nonce from its account ID needs a whole {@link MiningPlot} of 256 KiB. By default
+ * each thread that does so gets its own, which it keeps for as long as the thread lives, as the plot calculator of
+ * {@link BurstCrypto#getInstance()} lives for as long as the application does. Long lived pools that only calculate
+ * the odd hit, such as {@link java.util.concurrent.ForkJoinPool#commonPool()} or an unbounded I/O scheduler, should
+ * pass their own plot to {@link #calculateHitUnsigned(long, long, byte[], int, int, MiningPlot)} or
+ * {@link #calculateDeadlineUnsigned(long, long, byte[], int, long, int, MiningPlot)} instead.
+ */
 public class PlotCalculatorImpl implements PlotCalculator { // TODO all of this can be optimized
+    private static final int LANES = 16;
+
     private final Supplier<MessageDigest> shabal256Supplier;
+    private final ThreadLocal<MiningPlot> plots = ThreadLocal.withInitial(MiningPlot::new);
 
     public PlotCalculatorImpl(Supplier<MessageDigest> shabal256Supplier) {
         this.shabal256Supplier = shabal256Supplier;
@@ -27,32 +43,162 @@ public class PlotCalculatorImpl implements PlotCalculator { // TODO all of this
         MessageDigest shabal256 = shabal256Supplier.get();
         shabal256.update(genSig);
         shabal256.update(BurstCrypto.getInstance().longToBytes(height));
-        BigInteger hashnum = new BigInteger(1, shabal256.digest());
-        return hashnum.mod(MiningPlot.SCOOPS_PER_PLOT_BIGINT).intValue();
+        byte[] hash = shabal256.digest();
+        // The scoop is the hash as a big-endian number mod 4096, which is its low 12 bits
+        return ((hash[hash.length - 2] & 0xFF) << 8 | (hash[hash.length - 1] & 0xFF)) & (MiningPlot.SCOOPS_PER_PLOT - 1);
     }
 
     @Override
     public BigInteger calculateHit(long accountId, long nonce, byte[] genSig, int scoop, int pocVersion) {
-        MiningPlot plot = new MiningPlot(shabal256Supplier, accountId, nonce, pocVersion);
+        return toUnsignedBigInteger(calculateHitUnsigned(accountId, nonce, genSig, scoop, pocVersion));
+    }
+
+    @Override
+    public BigInteger calculateHit(long accountId, long nonce, byte[] genSig, byte[] scoopData) {
+        return toUnsignedBigInteger(calculateHitUnsigned(accountId, nonce, genSig, scoopData));
+    }
+
+    @Override
+    public long calculateHitUnsigned(long accountId, long nonce, byte[] genSig, int scoop, int pocVersion) {
+        return calculateHitUnsigned(accountId, nonce, genSig, scoop, pocVersion, plots.get());
+    }
+
+    /**
+     * Calculate a hit using a plot owned by the caller, rather than the calling thread's.
+     * @param plot The plot to regenerate the scoop into. Its contents are overwritten.
+     */
+    public long calculateHitUnsigned(long accountId, long nonce, byte[] genSig, int scoop, int pocVersion, MiningPlot plot) {
         MessageDigest shabal256 = shabal256Supplier.get();
+        plot.regenerateScoop(shabal256, accountId, nonce, scoop, pocVersion);
         shabal256.update(genSig);
         plot.hashScoop(shabal256, scoop);
-        byte[] hash = shabal256.digest();
-        return new BigInteger(1, new byte[] {hash[7], hash[6], hash[5], hash[4], hash[3], hash[2], hash[1], hash[0]});
+        return readHit(shabal256.digest(), 0);
     }
 
     @Override
-    public BigInteger calculateHit(long accountId, long nonce, byte[] genSig, byte[] scoopData) {
+    public long calculateHitUnsigned(long accountId, long nonce, byte[] genSig, byte[] scoopData) {
         MessageDigest shabal256 = shabal256Supplier.get();
         shabal256.update(genSig);
         shabal256.update(scoopData);
-        byte[] hash = shabal256.digest();
-        return new BigInteger(1, new byte[] {hash[7], hash[6], hash[5], hash[4], hash[3], hash[2], hash[1], hash[0]});
+        return readHit(shabal256.digest(), 0);
+    }
+
+    @Override
+    public BigInteger[] calculateHits(long accountId, long startNonce, int nonceCount, byte[] genSig, int scoop, int pocVersion) {
+        BigInteger[] hits = new BigInteger[nonceCount];
+        if (nonceCount == 0) {
+            return hits;
+        }
+        int lanes = Math.min(LANES, nonceCount);
+        Shabal256Lanes shabal256 = new Shabal256Lanes(lanes);
+        byte[] scoops = new byte[lanes * MiningPlot.SCOOP_SIZE];
+        byte[] hashes = new byte[lanes * MiningPlot.HASH_SIZE];
+        MiningPlot[] plots = new MiningPlot[lanes];
+        for (int l = 0; l < lanes; l++) {
+            plots[l] = new MiningPlot();
+        }
+        for (int i = 0; i < nonceCount; i += LANES) {
+            int count = Math.min(LANES, nonceCount - i);
+            if (count != shabal256.getLanes()) {
+                // Only generate the plots that are needed for the last batch
+                shabal256 = new Shabal256Lanes(count);
+            }
+            MiningPlot.generate(shabal256, accountId, startNonce + i, pocVersion, plots);
+            for (int l = 0; l < count; l++) {
+                plots[l].getScoop(scoop, scoops, l * MiningPlot.SCOOP_SIZE);
+            }
+            shabal256.update(genSig, 0, 0, genSig.length);
+            shabal256.update(scoops, 0, MiningPlot.SCOOP_SIZE, MiningPlot.SCOOP_SIZE);
+            shabal256.digest(hashes, 0, MiningPlot.HASH_SIZE);
+            for (int l = 0; l < count; l++) {
+                hits[i + l] = toUnsignedBigInteger(readHit(hashes, l * MiningPlot.HASH_SIZE));
+            }
+        }
+        return hits;
+    }
+
+    @Override
+    public HitCalculator getHitCalculator(byte[] genSig) {
+        return new HitCalculatorImpl(shabal256Supplier, genSig);
+    }
+
+    @Override
+    public BestDeadline calculateBestDeadline(ByteBuffer scoops, long startNonce, byte[] genSig, long baseTarget) {
+        if (scoops.remaining() < MiningPlot.SCOOP_SIZE) {
+            throw new IllegalArgumentException("Scoop buffer must contain at least one scoop");
+        }
+        long[] best = {startNonce, -1};
+        calculateDeadlines(scoops, startNonce, genSig, baseTarget, -1, (nonce, deadline) -> {
+            if (Long.compareUnsigned(deadline, best[1]) < 0) {
+                best[0] = nonce;
+                best[1] = deadline;
+            }
+        });
+        return new BestDeadline(best[0], best[1]);
+    }
+
+    @Override
+    public void calculateDeadlines(ByteBuffer scoops, long startNonce, byte[] genSig, long baseTarget, long maxDeadline, DeadlineConsumer consumer) {
+        if (scoops.remaining() % MiningPlot.SCOOP_SIZE != 0) {
+            throw new IllegalArgumentException("Scoop buffer length must be a multiple of " + MiningPlot.SCOOP_SIZE + ", was " + scoops.remaining());
+        }
+        if (baseTarget == 0) {
+            throw new IllegalArgumentException("Base target cannot be zero");
+        }
+        ByteBuffer in = scoops.duplicate();
+        int scoopCount = in.remaining() / MiningPlot.SCOOP_SIZE;
+        Shabal256Lanes shabal256 = new Shabal256Lanes(LANES);
+        byte[] batch = new byte[LANES * MiningPlot.SCOOP_SIZE];
+        byte[] hashes = new byte[LANES * MiningPlot.HASH_SIZE];
+        for (int i = 0; i < scoopCount; i += LANES) {
+            int count = Math.min(LANES, scoopCount - i);
+            in.get(batch, 0, count * MiningPlot.SCOOP_SIZE);
+            shabal256.update(genSig, 0, 0, genSig.length);
+            shabal256.update(batch, 0, MiningPlot.SCOOP_SIZE, MiningPlot.SCOOP_SIZE);
+            shabal256.digest(hashes, 0, MiningPlot.HASH_SIZE);
+            for (int l = 0; l < count; l++) {
+                long deadline = Long.divideUnsigned(readHit(hashes, l * MiningPlot.HASH_SIZE), baseTarget);
+                if (Long.compareUnsigned(deadline, maxDeadline) <= 0) {
+                    consumer.onDeadline(startNonce + i + l, deadline);
+                }
+            }
+        }
     }
 
     @Override
     public BigInteger calculateDeadline(long accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion) {
-        BigInteger hit = calculateHit(accountId, nonce, genSig, scoop, pocVersion);
-        return hit.divide(BigInteger.valueOf(baseTarget));
+        return toUnsignedBigInteger(calculateDeadlineUnsigned(accountId, nonce, genSig, scoop, baseTarget, pocVersion));
+    }
+
+    @Override
+    public long calculateDeadlineUnsigned(long accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion) {
+        return calculateDeadlineUnsigned(accountId, nonce, genSig, scoop, baseTarget, pocVersion, plots.get());
+    }
+
+    /**
+     * Calculate a deadline using a plot owned by the caller, rather than the calling thread's.
+     * @param plot The plot to regenerate the scoop into. Its contents are overwritten.
+     */
+    public long calculateDeadlineUnsigned(long accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion, MiningPlot plot) {
+        return Long.divideUnsigned(calculateHitUnsigned(accountId, nonce, genSig, scoop, pocVersion, plot), baseTarget);
+    }
+
+    /**
+     * Read a hit, the first 8 bytes of the hash interpreted as an unsigned little-endian number
+     */
+    static long readHit(byte[] hash, int offset) {
+        return (hash[offset] & 0xFFL)
+                | (hash[offset + 1] & 0xFFL) << 8
+                | (hash[offset + 2] & 0xFFL) << 16
+                | (hash[offset + 3] & 0xFFL) << 24
+                | (hash[offset + 4] & 0xFFL) << 32
+                | (hash[offset + 5] & 0xFFL) << 40
+                | (hash[offset + 6] & 0xFFL) << 48
+                | (hash[offset + 7] & 0xFFL) << 56;
+    }
+
+    static BigInteger toUnsignedBigInteger(long value) {
+        BigInteger bigInteger = BigInteger.valueOf(value & Long.MAX_VALUE);
+        return value < 0 ? bigInteger.setBit(63) : bigInteger;
     }
 }
@@ -0,0 +1,141 @@
+package burst.kit.mining;
+
+import burst.kit.crypto.plot.MiningRoundContext;
+import burst.kit.crypto.plot.PlotFileScanner;
+import burst.kit.crypto.plot.PlotScanResult;
+import burst.kit.entity.BurstID;
+import burst.kit.entity.response.MiningInfo;
+import burst.kit.service.BurstNodeService;
+import burst.kit.util.BurstKitUtils;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableEmitter;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Mines using the plot files of a {@link PlotFileScanner}, following the node's mining info.
+ *
+ * Every new block cancels the scan of the previous block and starts a new one. While a block is being scanned,
+ * a nonce is only submitted if it improves on the best deadline already found for its account in that block.
+ * Each account has at most one submission in flight, and if submissions are slower than the scan,
+ * only the latest improvement of each account is submitted.
+ *
+ * If getting the mining info fails, it is retried with a backoff, so mining continues once the node is reachable again.
+ */
+public class Miner {
+    private static final long INITIAL_RETRY_DELAY_MS = 1000;
+    private static final long MAX_RETRY_DELAY_MS = 60000;
+
+    private final BurstNodeService nodeService;
+    private final PlotFileScanner scanner;
+    private final String passphrase;
+    private final long maxDeadline;
+    private final Consumer<Throwable> errorHandler;
+
+    /**
+     * Create a pool miner which submits every improvement and ignores errors.
+     * @param nodeService The node (or pool) to get mining info from and submit nonces to
+     * @param scanner The plot file scanner
+     */
+    public Miner(BurstNodeService nodeService, PlotFileScanner scanner) {
+        this(nodeService, scanner, null, -1, error -> {});
+    }
+
+    /**
+     * @param nodeService The node (or pool) to get mining info from and submit nonces to
+     * @param scanner The plot file scanner
+     * @param passphrase The passphrase of the account if solo mining, or null if pool mining
+     * @param maxDeadline The maximum deadline to submit, compared unsigned. Use -1 to submit any deadline.
+     * @param errorHandler Called with errors from getting mining info, scanning or submitting, which do not stop mining
+     */
+    public Miner(BurstNodeService nodeService, PlotFileScanner scanner, String passphrase, long maxDeadline, Consumer<Throwable> errorHandler) {
+        this.nodeService = nodeService;
+        this.scanner = scanner;
+        this.passphrase = passphrase;
+        this.maxDeadline = maxDeadline;
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Start mining. Nothing happens until this is subscribed to, and disposing the subscription stops mining.
+     * @return The submissions accepted by the node
+     */
+    public Flowable<MiningSubmission> mine() {
+        return getMiningInfo()
+                // Resubscribing after an error repeats the current block, which must not restart its scan
+                .distinctUntilChanged((previous, next) -> previous.getHeight() == next.getHeight()
+                        && Arrays.equals(previous.getGenerationSignature(), next.getGenerationSignature()))
+                .switchMap(this::mineRound);
+    }
+
+    private Flowable<MiningInfo> getMiningInfo() {
+        return Flowable.defer(() -> {
+            AtomicInteger failures = new AtomicInteger();
+            // Deferred so that every retry gets the mining info from the node again
+            return Observable.defer(nodeService::getMiningInfo)
+                    .toFlowable(BackpressureStrategy.LATEST)
+                    .doOnNext(miningInfo -> failures.set(0))
+                    .doOnError(errorHandler::accept)
+                    .retryWhen(errors -> errors.flatMap(error -> Flowable.timer(getRetryDelay(failures.getAndIncrement()), TimeUnit.MILLISECONDS)));
+        });
+    }
+
+    private static long getRetryDelay(int failures) {
+        return Math.min(MAX_RETRY_DELAY_MS, INITIAL_RETRY_DELAY_MS << Math.min(failures, 16));
+    }
+
+    private Flowable<MiningSubmission> mineRound(MiningInfo miningInfo) {
+        MiningRoundContext round = new MiningRoundContext(scanner.getPlotCalculator(), miningInfo);
+        Map<Long, Long> bestDeadlines = new HashMap<>();
+        return scanRound(round)
+                .filter(result -> {
+                    if (Long.compareUnsigned(result.getDeadline(), maxDeadline) > 0) {
+                        return false;
+                    }
+                    Long best = bestDeadlines.get(result.getAccountId());
+                    if (best != null && Long.compareUnsigned(result.getDeadline(), best) >= 0) {
+                        return false;
+                    }
+                    bestDeadlines.put(result.getAccountId(), result.getDeadline());
+                    return true;
+                })
+                // Keep the latest improvement of each account while that account's submission is in flight
+                .groupBy(PlotScanResult::getAccountId)
+                .flatMap(account -> account
+                        .onBackpressureLatest()
+                        .concatMapMaybe(result -> submit(miningInfo, result), 1), Integer.MAX_VALUE);
+    }
+
+    private Flowable<PlotScanResult> scanRound(MiningRoundContext round) {
+        return Flowable.<PlotScanResult>create(emitter -> {
+            FlowableEmitter<PlotScanResult> serialized = emitter.serialize();
+            try {
+                scanner.scan(round, serialized::onNext);
+                serialized.onComplete();
+            } catch (InterruptedIOException e) {
+                // The round was cancelled by a new block
+                serialized.onComplete();
+            }
+        }, BackpressureStrategy.BUFFER)
+                .subscribeOn(BurstKitUtils.defaultBurstNodeServiceScheduler())
+                .doOnError(errorHandler::accept)
+                .onErrorResumeNext(Flowable.empty());
+    }
+
+    private Maybe<MiningSubmission> submit(MiningInfo miningInfo, PlotScanResult result) {
+        return nodeService.submitNonce(passphrase, Long.toUnsignedString(result.getNonce()), BurstID.fromLong(result.getAccountId()))
+                .map(confirmedDeadline -> new MiningSubmission(miningInfo.getHeight(), result, confirmedDeadline))
+                .toMaybe()
+                .doOnError(errorHandler::accept)
+                .onErrorComplete();
+    }
+}
@@ -0,0 +1,57 @@
+package burst.kit.mining;
+
+import burst.kit.crypto.plot.PlotScanResult;
+
+/**
+ * A deadline that a {@link Miner} submitted to the node.
+ */
+public class MiningSubmission {
+    private final long height;
+    private final PlotScanResult result;
+    private final long confirmedDeadline;
+
+    public MiningSubmission(long height, PlotScanResult result, long confirmedDeadline) {
+        this.height = height;
+        this.result = result;
+        this.confirmedDeadline = confirmedDeadline;
+    }
+
+    /**
+     * @return The height of the block being mined
+     */
+    public long getHeight() {
+        return height;
+    }
+
+    /**
+     * @return The plot file scan result that was submitted
+     */
+    public PlotScanResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return The account ID of the submitted nonce, as a signed long
+     */
+    public long getAccountId() {
+        return result.getAccountId();
+    }
+
+    public long getNonce() {
+        return result.getNonce();
+    }
+
+    /**
+     * @return The deadline calculated by the miner, an unsigned value
+     */
+    public long getDeadline() {
+        return result.getDeadline();
+    }
+
+    /**
+     * @return The deadline calculated and accepted by the node
+     */
+    public long getConfirmedDeadline() {
+        return confirmedDeadline;
+    }
+}
@@ -0,0 +1,240 @@
+package burst.kit.mining;
+
+import burst.kit.crypto.plot.impl.MiningPlot;
+import burst.kit.entity.response.Block;
+import burst.kit.entity.response.MiningInfo;
+import burst.kit.service.BurstNodeService;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+
+/**
+ * Incremental statistics about the network's mining capacity and difficulty, built from a stream of blocks.
+ *
+ * Each block updates exponential moving averages of the base target, its inverse and the block time, so an update
+ * takes constant time and memory no matter how much history has been seen. From these the network capacity, the
+ * expected deadline of a plot size and the probability of winning a block can be estimated, for example to decide
+ * whether a deadline is worth submitting or whether it is worth continuing to scan.
+ *
+ * Every hit is uniformly distributed over the unsigned 64 bit range, so the deadlines of a nonce are uniform
+ * over [0, 2^64 / baseTarget). The base target is adjusted so that the best deadline of the whole network averages
+ * the target block time, which lets the capacity of the network be calculated from the base target. The capacity
+ * of each block is proportional to the inverse of its base target, so the capacity is estimated from the average
+ * of the inverse, not the inverse of the average.
+ *
+ * All methods are thread safe.
+ */
+public class NetworkStatistics {
+    /**
+     * The block time the base target is adjusted to achieve, in seconds
+     */
+    public static final int TARGET_BLOCK_TIME = 240;
+    /**
+     * The number of blocks the moving averages are over by default, which is about a day of blocks
+     */
+    public static final int DEFAULT_WINDOW = 360;
+
+    private static final double TWO_POW_64 = 0x1p64;
+    private static final int BLOCKS_PER_REQUEST = 100;
+
+    private final double alpha;
+
+    private long blockCount;
+    private long lastHeight = -1;
+    private int lastTimestamp;
+    private long lastBaseTarget;
+    private double averageBaseTarget;
+    private double averageInverseBaseTarget;
+    private double averageBlockTime = TARGET_BLOCK_TIME;
+
+    public NetworkStatistics() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window The number of blocks the moving averages are over. Lower values follow changes
+     *               in network capacity more quickly but are noisier.
+     */
+    public NetworkStatistics(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1 block, was " + window);
+        }
+        this.alpha = 2.0 / (window + 1);
+    }
+
+    /**
+     * Add a block to the statistics. Blocks should be added in order of height. Blocks at or below
+     * the height of the last block added are ignored.
+     * @param block The block
+     */
+    public void update(Block block) {
+        update(block.getHeight(), block.getTimestamp().getTimestamp(), block.getBaseTarget());
+    }
+
+    /**
+     * Add a block to the statistics. Blocks should be added in order of height. Blocks at or below
+     * the height of the last block added are ignored.
+     * @param height The height of the block
+     * @param timestamp The timestamp of the block, in seconds
+     * @param baseTarget The base target of the block
+     */
+    public synchronized void update(long height, int timestamp, long baseTarget) {
+        if (height <= lastHeight) {
+            return;
+        }
+        if (blockCount == 0) {
+            averageBaseTarget = baseTarget;
+            averageInverseBaseTarget = 1.0 / baseTarget;
+        } else {
+            averageBaseTarget += alpha * (baseTarget - averageBaseTarget);
+            averageInverseBaseTarget += alpha * (1.0 / baseTarget - averageInverseBaseTarget);
+            if (height == lastHeight + 1) {
+                averageBlockTime += alpha * ((timestamp - lastTimestamp) - averageBlockTime);
+            }
+        }
+        blockCount++;
+        lastHeight = height;
+        lastTimestamp = timestamp;
+        lastBaseTarget = baseTarget;
+    }
+
+    /**
+     * Fetch the latest blocks from a node and add them, oldest first.
+     * @param nodeService The node to fetch blocks from
+     * @param blocks The number of blocks to fetch, such as {@link #DEFAULT_WINDOW}
+     * @return These statistics, once the blocks have been added
+     */
+    public Single<NetworkStatistics> loadHistory(BurstNodeService nodeService, int blocks) {
+        int requests = (blocks + BLOCKS_PER_REQUEST - 1) / BLOCKS_PER_REQUEST;
+        // Blocks are indexed from the latest block, so request the highest indices first
+        return Flowable.range(0, requests)
+                .map(request -> requests - 1 - request)
+                .concatMapSingle(request -> nodeService.getBlocks(request * BLOCKS_PER_REQUEST, Math.min(blocks, (request + 1) * BLOCKS_PER_REQUEST) - 1))
+                .doOnNext(this::updateNewestFirst)
+                .ignoreElements()
+                .toSingleDefault(this);
+    }
+
+    /**
+     * Add each new block as the node's mining info changes.
+     * @param nodeService The node to follow
+     * @return These statistics, every time a block has been added
+     */
+    public Flowable<NetworkStatistics> follow(BurstNodeService nodeService) {
+        return nodeService.getMiningInfo()
+                .toFlowable(BackpressureStrategy.LATEST)
+                .distinctUntilChanged(MiningInfo::getHeight)
+                .concatMapSingle(miningInfo -> nodeService.getBlocks(0, 0))
+                .map(blocks -> {
+                    updateNewestFirst(blocks);
+                    return this;
+                });
+    }
+
+    private void updateNewestFirst(Block[] blocks) {
+        for (int i = blocks.length - 1; i >= 0; i--) {
+            update(blocks[i]);
+        }
+    }
+
+    public synchronized long getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * @return The height of the last block added, or -1 if none have been added
+     */
+    public synchronized long getLastHeight() {
+        return lastHeight;
+    }
+
+    public synchronized long getLastBaseTarget() {
+        return lastBaseTarget;
+    }
+
+    /**
+     * @return The moving average of the base target, or 0 if no blocks have been added
+     */
+    public synchronized double getAverageBaseTarget() {
+        return averageBaseTarget;
+    }
+
+    /**
+     * @return The moving average of the time between blocks, in seconds
+     */
+    public synchronized double getAverageBlockTime() {
+        return averageBlockTime;
+    }
+
+    /**
+     * @return The estimated number of nonces plotted by the whole network, or 0 if no blocks have been added
+     */
+    public synchronized double getEstimatedNetworkNonces() {
+        if (blockCount == 0) {
+            return 0;
+        }
+        return TWO_POW_64 * averageInverseBaseTarget / TARGET_BLOCK_TIME;
+    }
+
+    /**
+     * @return The estimated capacity of the whole network, in bytes, or 0 if no blocks have been added
+     */
+    public double getEstimatedNetworkCapacity() {
+        return getEstimatedNetworkNonces() * MiningPlot.PLOT_SIZE;
+    }
+
+    /**
+     * @param nonces The number of nonces plotted
+     * @param baseTarget The base target of the block being mined
+     * @return The expected best deadline of that many nonces, in seconds
+     */
+    public static double getExpectedDeadline(long nonces, long baseTarget) {
+        return TWO_POW_64 / ((double) baseTarget * (nonces + 1));
+    }
+
+    /**
+     * A point on the cumulative distribution of the best deadline of a plot size.
+     * @param nonces The number of nonces plotted
+     * @param deadline The deadline, in seconds
+     * @param baseTarget The base target of the block being mined
+     * @return The probability that the best deadline of that many nonces is no more than the deadline
+     */
+    public static double getDeadlineProbability(long nonces, long deadline, long baseTarget) {
+        return -Math.expm1(-(double) nonces * deadline * baseTarget / TWO_POW_64);
+    }
+
+    /**
+     * @param nonces The number of nonces plotted
+     * @return The probability that a plot of that size finds the best deadline of a block,
+     * or 0 if no blocks have been added
+     */
+    public synchronized double getWinProbability(long nonces) {
+        if (blockCount == 0) {
+            return 0;
+        }
+        return nonces / (nonces + getEstimatedNetworkNonces());
+    }
+
+    /**
+     * @param deadline A deadline that has been found, in seconds
+     * @param baseTarget The base target of the block being mined
+     * @return The probability that no other miner in the network finds a better deadline,
+     * or 0 if no blocks have been added
+     */
+    public synchronized double getWinProbability(long deadline, long baseTarget) {
+        if (blockCount == 0) {
+            return 0;
+        }
+        return Math.exp(-getEstimatedNetworkNonces() * deadline * baseTarget / TWO_POW_64);
+    }
+
+    /**
+     * @param deadline The best deadline found so far, in seconds
+     * @param remainingNonces The number of nonces still to be scanned
+     * @param baseTarget The base target of the block being mined
+     * @return The probability that scanning the remaining nonces finds a better deadline
+     */
+    public static double getImprovementProbability(long deadline, long remainingNonces, long baseTarget) {
+        return getDeadlineProbability(remainingNonces, deadline, baseTarget);
+    }
+}
@@ -0,0 +1,178 @@
+package burst.kit.mining;
+
+import burst.kit.crypto.plot.MiningRoundContext;
+import burst.kit.crypto.plot.PlotCalculator;
+import burst.kit.entity.response.MiningInfo;
+import io.reactivex.Flowable;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies nonces submitted to a pool, on a fixed number of worker threads.
+ *
+ * Submissions wait in a bounded queue. A submission is turned away if it repeats an earlier one in the same block,
+ * if it claims a deadline no better than the account's best verified deadline, or if the queue is full.
+ * It is skipped if the account's best has improved past it by the time a worker reaches it.
+ * Moving to a new block discards all queued work.
+ */
+public class NonceVerifier implements AutoCloseable {
+    private final PlotCalculator plotCalculator;
+    private final int pocVersion;
+    private final ThreadPoolExecutor executor;
+    private final FlowableProcessor<VerifiedDeadline> bestDeadlines = PublishProcessor.<VerifiedDeadline>create().toSerialized();
+    private volatile Round round;
+
+    /**
+     * Create a verifier for PoC2 nonces.
+     * @param plotCalculator The plot calculator to verify nonces with
+     * @param threads The number of worker threads
+     * @param queueCapacity The maximum number of submissions waiting to be verified
+     */
+    public NonceVerifier(PlotCalculator plotCalculator, int threads, int queueCapacity) {
+        this(plotCalculator, threads, queueCapacity, 2);
+    }
+
+    /**
+     * @param plotCalculator The plot calculator to verify nonces with
+     * @param threads The number of worker threads
+     * @param queueCapacity The maximum number of submissions waiting to be verified
+     * @param pocVersion The PoC version to verify nonces with
+     */
+    public NonceVerifier(PlotCalculator plotCalculator, int threads, int queueCapacity, int pocVersion) {
+        this.plotCalculator = plotCalculator;
+        this.pocVersion = pocVersion;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "nonce-verifier-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start verifying submissions for a new block. If the block has changed, all queued work for the previous block
+     * is discarded and every account's best deadline is forgotten. A block is the same only if its height,
+     * generation signature and base target are all the same, so a reorganization to another block at the same height
+     * also starts a new round.
+     * @param miningInfo The mining info of the new block
+     */
+    public void setMiningInfo(MiningInfo miningInfo) {
+        Round current = round;
+        if (current != null && current.height == miningInfo.getHeight() && current.baseTarget == miningInfo.getBaseTarget()
+                && Arrays.equals(current.genSig, miningInfo.getGenerationSignature())) {
+            return;
+        }
+        round = new Round(new MiningRoundContext(plotCalculator, miningInfo));
+        executor.getQueue().clear();
+    }
+
+    /**
+     * Queue a submission for verification.
+     * @param accountId The account ID, as a signed long
+     * @param nonce The nonce
+     * @param claimedDeadline The deadline the miner claims for this nonce, an unsigned value
+     * @return true if the submission was queued, false if it was turned away
+     * @throws IllegalStateException if no mining info has been set yet
+     */
+    public boolean submit(long accountId, long nonce, long claimedDeadline) throws IllegalStateException {
+        Round round = this.round;
+        if (round == null) {
+            throw new IllegalStateException("Mining info has not been set");
+        }
+        if (!round.isImprovement(accountId, claimedDeadline) || !round.submissions.add(new Submission(accountId, nonce))) {
+            return false;
+        }
+        try {
+            executor.execute(() -> verify(round, accountId, nonce, claimedDeadline));
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Allow a later retry of the same nonce once the queue has room
+            round.submissions.remove(new Submission(accountId, nonce));
+            return false;
+        }
+    }
+
+    /**
+     * @return A stream of every verified deadline which improves on its account's best deadline for the current block
+     */
+    public Flowable<VerifiedDeadline> getBestDeadlines() {
+        return bestDeadlines.onBackpressureBuffer();
+    }
+
+    private void verify(Round round, long accountId, long nonce, long claimedDeadline) {
+        if (round != this.round || !round.isImprovement(accountId, claimedDeadline)) {
+            return;
+        }
+        long deadline = plotCalculator.calculateDeadlineUnsigned(accountId, nonce, round.genSig, round.context.getScoop(), round.baseTarget, pocVersion);
+        if (deadline != claimedDeadline) {
+            return;
+        }
+        synchronized (round) {
+            if (round == this.round && round.isImprovement(accountId, deadline)) {
+                round.bestDeadlines.put(accountId, deadline);
+                bestDeadlines.onNext(new VerifiedDeadline(round.height, accountId, nonce, deadline));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        bestDeadlines.onComplete();
+    }
+
+    private static class Round {
+        private final MiningRoundContext context;
+        private final long height;
+        private final byte[] genSig;
+        private final long baseTarget;
+        private final Set<Submission> submissions = ConcurrentHashMap.newKeySet();
+        private final Map<Long, Long> bestDeadlines = new HashMap<>();
+
+        private Round(MiningRoundContext context) {
+            this.context = context;
+            this.height = context.getHeight();
+            this.genSig = context.getGenerationSignature();
+            this.baseTarget = context.getBaseTarget();
+        }
+
+        private synchronized boolean isImprovement(long accountId, long deadline) {
+            Long best = bestDeadlines.get(accountId);
+            return best == null || Long.compareUnsigned(deadline, best) < 0;
+        }
+    }
+
+    private static class Submission {
+        private final long accountId;
+        private final long nonce;
+
+        private Submission(long accountId, long nonce) {
+            this.accountId = accountId;
+            this.nonce = nonce;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Submission)) return false;
+            Submission other = (Submission) obj;
+            return accountId == other.accountId && nonce == other.nonce;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, nonce);
+        }
+    }
+}
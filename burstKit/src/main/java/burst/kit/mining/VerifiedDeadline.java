@@ -0,0 +1,48 @@
+package burst.kit.mining;
+
+/**
+ * A deadline that a {@link NonceVerifier} has verified, which improves on the account's best deadline for the block.
+ */
+public class VerifiedDeadline {
+    private final long height;
+    private final long accountId;
+    private final long nonce;
+    private final long deadline;
+
+    public VerifiedDeadline(long height, long accountId, long nonce, long deadline) {
+        this.height = height;
+        this.accountId = accountId;
+        this.nonce = nonce;
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return The height of the block being mined
+     */
+    public long getHeight() {
+        return height;
+    }
+
+    /**
+     * @return The account ID, as a signed long
+     */
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    /**
+     * @return The verified deadline, an unsigned value
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public String toString() {
+        return "VerifiedDeadline{height=" + height + ", accountId=" + Long.toUnsignedString(accountId) + ", nonce=" + Long.toUnsignedString(nonce) + ", deadline=" + Long.toUnsignedString(deadline) + "}";
+    }
+}
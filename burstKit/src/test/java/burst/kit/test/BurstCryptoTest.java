@@ -1,13 +1,35 @@
 package burst.kit.test;
 
+import burst.kit.crypto.AddressGenerator;
 import burst.kit.crypto.BurstCrypto;
+import burst.kit.crypto.BurstKeyPair;
+import burst.kit.crypto.GeneratedAddress;
+import burst.kit.crypto.SharedSecretCache;
+import burst.kit.crypto.ec.SigningKey;
 import burst.kit.entity.BurstEncryptedMessage;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 @RunWith(JUnit4.class)
 public class BurstCryptoTest { // TODO more unit tests
@@ -37,4 +59,232 @@ public class BurstCryptoTest { // TODO more unit tests
         byte[] signature = BurstCrypto.getInstance().sign(myMessage, myPrivateKey);
         Assert.assertTrue(BurstCrypto.getInstance().verify(signature, myMessage, myPublic, true));
     }
+
+    @Test
+    public void TestSignWithSigningKey() {
+        byte[] myMessage = "A Message".getBytes(StandardCharsets.UTF_8);
+        byte[] myPrivateKey = BurstCrypto.getInstance().getPrivateKey("example1");
+        SigningKey signingKey = BurstCrypto.getInstance().getSigningKey(myPrivateKey);
+        Assert.assertArrayEquals(BurstCrypto.getInstance().getPublicKey(myPrivateKey), signingKey.getPublicKey());
+        Assert.assertArrayEquals(BurstCrypto.getInstance().sign(myMessage, myPrivateKey), BurstCrypto.getInstance().sign(myMessage, signingKey));
+    }
+
+    @Test
+    public void TestKeyPair() {
+        BurstKeyPair myKeyPair = BurstCrypto.getInstance().getKeyPair("example1");
+        BurstKeyPair theirKeyPair = BurstCrypto.getInstance().getKeyPair(BurstCrypto.getInstance().getPrivateKey("example2"));
+        Assert.assertArrayEquals(BurstCrypto.getInstance().getPrivateKey("example1"), myKeyPair.getPrivateKey());
+        Assert.assertArrayEquals(BurstCrypto.getInstance().getPublicKey("example1"), myKeyPair.getPublicKey());
+        Assert.assertEquals(BurstCrypto.getInstance().getBurstAddressFromPassphrase("example1"), myKeyPair.getAddress());
+
+        byte[] myMessage = "A Message".getBytes(StandardCharsets.UTF_8);
+        Assert.assertArrayEquals(BurstCrypto.getInstance().sign(myMessage, "example1"), BurstCrypto.getInstance().sign(myMessage, myKeyPair));
+        Assert.assertArrayEquals(BurstCrypto.getInstance().getSharedSecret("example1", theirKeyPair.getPublicKey()), BurstCrypto.getInstance().getSharedSecret(myKeyPair, theirKeyPair.getPublicKey()));
+
+        BurstEncryptedMessage burstEncryptedMessage = BurstCrypto.getInstance().encryptTextMessage("Test message", myKeyPair, theirKeyPair.getPublicKey());
+        Assert.assertEquals("Test message", new String(BurstCrypto.getInstance().decryptMessage(burstEncryptedMessage, theirKeyPair, myKeyPair.getPublicKey()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void TestSharedSecretCache() {
+        BurstKeyPair myKeyPair = BurstCrypto.getInstance().getKeyPair("example1");
+        BurstKeyPair theirKeyPair = BurstCrypto.getInstance().getKeyPair("example2");
+        BurstKeyPair otherKeyPair = BurstCrypto.getInstance().getKeyPair("example3");
+        try (SharedSecretCache cache = new SharedSecretCache(1)) {
+            Assert.assertArrayEquals(BurstCrypto.getInstance().getSharedSecret(myKeyPair, theirKeyPair.getPublicKey()), cache.getSharedSecret(myKeyPair, theirKeyPair.getPublicKey()));
+            BurstEncryptedMessage burstEncryptedMessage = cache.encryptTextMessage("Test message", myKeyPair, theirKeyPair.getPublicKey());
+            Assert.assertEquals("Test message", new String(BurstCrypto.getInstance().decryptMessage(burstEncryptedMessage, theirKeyPair, myKeyPair.getPublicKey()), StandardCharsets.UTF_8));
+            Assert.assertEquals("Test message", new String(cache.decryptMessage(burstEncryptedMessage, myKeyPair, theirKeyPair.getPublicKey()), StandardCharsets.UTF_8));
+            Assert.assertEquals(1, cache.size());
+            Assert.assertArrayEquals(BurstCrypto.getInstance().getSharedSecret(myKeyPair, otherKeyPair.getPublicKey()), cache.getSharedSecret(myKeyPair, otherKeyPair.getPublicKey()));
+            Assert.assertEquals(1, cache.size());
+            cache.clear();
+            Assert.assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void TestAddressGenerator() throws IOException {
+        List<GeneratedAddress> addresses = new ArrayList<>();
+        new AddressGenerator(BurstCrypto.getInstance(), ForkJoinPool.commonPool(), 7).generate(AddressGenerator.seedScheme("seed"), 5, 20, addresses::add);
+        Assert.assertEquals(20, addresses.size());
+        for (int i = 0; i < addresses.size(); i++) {
+            GeneratedAddress address = addresses.get(i);
+            Assert.assertEquals(5 + i, address.getIndex());
+            Assert.assertEquals("seed " + (5 + i), address.getPassphrase());
+            Assert.assertEquals(BurstCrypto.getInstance().getBurstAddressFromPassphrase(address.getPassphrase()), address.getAddress());
+            Assert.assertArrayEquals(BurstCrypto.getInstance().getPublicKey(address.getPassphrase()), address.getPublicKey());
+        }
+
+        StringWriter csv = new StringWriter();
+        new AddressGenerator().writeCsv(AddressGenerator.seedScheme("seed"), 5, 1, csv);
+        Assert.assertEquals("5,seed 5," + addresses.get(0).getAddress().getFullAddress() + "," + BurstCrypto.getInstance().toHexString(addresses.get(0).getPublicKey()) + "\n", csv.toString());
+    }
+
+    @Test
+    public void TestAddressGeneratorFlowables() {
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "address-generator"));
+        try {
+            AddressGenerator addressGenerator = new AddressGenerator(BurstCrypto.getInstance(), ForkJoinPool.commonPool(), 7, Schedulers.from(executor));
+            List<GeneratedAddress> expected = new ArrayList<>();
+            addressGenerator.generate(AddressGenerator.seedScheme("seed"), 5, 20, expected::add);
+
+            TestSubscriber<GeneratedAddress> generated = addressGenerator.generate(AddressGenerator.seedScheme("seed"), 5, 20).test();
+            Assert.assertTrue(generated.awaitTerminalEvent(1, TimeUnit.MINUTES));
+            generated.assertNoErrors().assertComplete().assertValueCount(20);
+            Assert.assertEquals("address-generator", generated.lastThread().getName());
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertEquals(expected.get(i).getIndex(), generated.values().get(i).getIndex());
+                Assert.assertEquals(expected.get(i).getAddress(), generated.values().get(i).getAddress());
+            }
+
+            // Only the chunks that are requested are generated
+            AtomicInteger derived = new AtomicInteger();
+            TestSubscriber<GeneratedAddress> firstChunk = addressGenerator.generate(index -> {
+                derived.incrementAndGet();
+                return "seed " + index;
+            }, 5, 20).take(3).test();
+            Assert.assertTrue(firstChunk.awaitTerminalEvent(1, TimeUnit.MINUTES));
+            firstChunk.assertNoErrors().assertComplete().assertValueCount(3);
+            Assert.assertEquals(7, derived.get());
+
+            // One character, so that about one in 32 passphrases matches
+            String prefix = "BURST-" + expected.get(0).getAddress().getRawAddress().charAt(0);
+            TestSubscriber<GeneratedAddress> vanity = addressGenerator.findVanity(prefix).take(3).test();
+            Assert.assertTrue(vanity.awaitTerminalEvent(1, TimeUnit.MINUTES));
+            vanity.assertNoErrors().assertComplete().assertValueCount(3);
+            Assert.assertEquals("address-generator", vanity.lastThread().getName());
+            for (GeneratedAddress address : vanity.values()) {
+                Assert.assertTrue(address.getAddress().getFullAddress().startsWith(prefix));
+                Assert.assertEquals(64, address.getPassphrase().length());
+                Assert.assertEquals(BurstCrypto.getInstance().getBurstAddressFromPassphrase(address.getPassphrase()), address.getAddress());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void TestVerifyBatch() {
+        List<byte[]> messages = new ArrayList<>();
+        List<byte[]> signatures = new ArrayList<>();
+        List<byte[]> publicKeys = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            byte[] privateKey = BurstCrypto.getInstance().getPrivateKey("example" + i);
+            byte[] message = ("Message " + i).getBytes(StandardCharsets.UTF_8);
+            messages.add(message);
+            signatures.add(BurstCrypto.getInstance().sign(message, privateKey));
+            publicKeys.add(BurstCrypto.getInstance().getPublicKey(privateKey));
+        }
+        signatures.get(3)[40] ^= 1; // Wrong hash
+        messages.set(7, "Another message".getBytes(StandardCharsets.UTF_8)); // Wrong message
+        publicKeys.set(11, publicKeys.get(12)); // Wrong public key
+        signatures.set(15, new byte[10]); // Malformed
+
+        boolean[] results = BurstCrypto.getInstance().verifyBatch(messages, signatures, publicKeys);
+        Assert.assertEquals(messages.size(), results.length);
+        for (int i = 0; i < results.length; i++) {
+            Assert.assertEquals(i != 3 && i != 7 && i != 11 && i != 15, results[i]);
+            Assert.assertEquals(results[i], i != 15 && BurstCrypto.getInstance().verify(signatures.get(i), messages.get(i), publicKeys.get(i), true));
+        }
+    }
+
+    @Test
+    public void TestEncryptMessageStreams() throws IOException {
+        byte[] sharedSecret = BurstCrypto.getInstance().getSharedSecret("example1", BurstCrypto.getInstance().getPublicKey("example2"));
+        byte[] message = new byte[100000];
+        Random random = new Random(0);
+        for (int i = 0; i < message.length; i++) {
+            message[i] = (byte) random.nextInt(16); // Compressible, but not by much
+        }
+
+        ByteArrayOutputStream ciphertext = new ByteArrayOutputStream();
+        byte[] nonce = BurstCrypto.getInstance().encryptMessage(new ByteArrayInputStream(message), ciphertext, sharedSecret);
+        Assert.assertArrayEquals(message, BurstCrypto.getInstance().decryptMessage(new BurstEncryptedMessage(ciphertext.toByteArray(), nonce, false), sharedSecret));
+
+        BurstEncryptedMessage encryptedMessage = BurstCrypto.getInstance().encryptBytesMessage(message, sharedSecret);
+        ByteArrayOutputStream plaintext = new ByteArrayOutputStream();
+        BurstCrypto.getInstance().decryptMessage(ByteBuffer.wrap(encryptedMessage.getData()), plaintext, encryptedMessage.getNonce(), sharedSecret);
+        Assert.assertArrayEquals(message, plaintext.toByteArray());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(message.length);
+        direct.put(message).flip();
+        ciphertext.reset();
+        nonce = BurstCrypto.getInstance().encryptMessage(direct, ciphertext, sharedSecret);
+        Assert.assertFalse(direct.hasRemaining());
+        plaintext.reset();
+        BurstCrypto.getInstance().decryptMessage(new ByteArrayInputStream(ciphertext.toByteArray()), plaintext, nonce, sharedSecret);
+        Assert.assertArrayEquals(message, plaintext.toByteArray());
+
+        // The streams are in the same format as AES encrypting the GZIP compressed message
+        byte[] compressed = BurstCrypto.getInstance().aesDecrypt(ciphertext.toByteArray(), sharedSecret.clone(), nonce);
+        Assert.assertEquals(0x1f, compressed[0] & 0xFF);
+        Assert.assertEquals(0x8b, compressed[1] & 0xFF);
+    }
+
+    @Test
+    public void TestDecryptMessageStreamRejectsInvalidCiphertext() throws IOException {
+        byte[] sharedSecret = BurstCrypto.getInstance().getSharedSecret("example1", BurstCrypto.getInstance().getPublicKey("example2"));
+        byte[] message = "Test message".getBytes(StandardCharsets.UTF_8);
+        byte[] nonce = new byte[32];
+        new Random(0).nextBytes(nonce);
+
+        // A complete GZIP stream followed by two blocks of junk, so tampering with the end of the ciphertext
+        // leaves the GZIP stream intact and only the padding can show it
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(message);
+        }
+        compressed.write(new byte[32]);
+        byte[] ciphertext = BurstCrypto.getInstance().aesEncrypt(compressed.toByteArray(), sharedSecret.clone(), nonce);
+        ByteArrayOutputStream plaintext = new ByteArrayOutputStream();
+        BurstCrypto.getInstance().decryptMessage(new ByteArrayInputStream(ciphertext), plaintext, nonce, sharedSecret);
+        Assert.assertArrayEquals(message, plaintext.toByteArray());
+
+        // Flipping the top bit of the penultimate block's last byte makes the padding length of the last block invalid
+        byte[] tampered = ciphertext.clone();
+        tampered[tampered.length - 17] ^= 0x80;
+        assertDecryptFails(tampered, nonce, sharedSecret);
+
+        ByteArrayOutputStream valid = new ByteArrayOutputStream();
+        nonce = BurstCrypto.getInstance().encryptMessage(new ByteArrayInputStream(message), valid, sharedSecret);
+        assertDecryptFails(Arrays.copyOf(valid.toByteArray(), valid.size() - 16), nonce, sharedSecret);
+        assertDecryptFails(Arrays.copyOf(valid.toByteArray(), valid.size() - 1), nonce, sharedSecret);
+    }
+
+    private static void assertDecryptFails(byte[] ciphertext, byte[] nonce, byte[] sharedSecret) {
+        try {
+            BurstCrypto.getInstance().decryptMessage(new ByteArrayInputStream(ciphertext), new ByteArrayOutputStream(), nonce, sharedSecret);
+            Assert.fail("Expected an IOException");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void TestJceAes() {
+        byte[] sharedSecret = BurstCrypto.getInstance().getSharedSecret("example1", BurstCrypto.getInstance().getPublicKey("example2"));
+        byte[] nonce = new byte[32];
+        new Random(0).nextBytes(nonce);
+        byte[] message = "Test message".getBytes(StandardCharsets.UTF_8);
+
+        byte[] sharedSecretCopy = sharedSecret.clone();
+        byte[] encrypted = BurstCrypto.getInstance().aesEncrypt(message, sharedSecret, nonce);
+        Assert.assertArrayEquals(sharedSecretCopy, sharedSecret);
+        Assert.assertArrayEquals(BurstCrypto.getInstance().deriveAesKey(sharedSecret, nonce), BurstCrypto.getInstance().deriveAesKey(sharedSecret, nonce));
+
+        BurstCrypto.getInstance().setJceAesEnabled(true);
+        try {
+            Assert.assertTrue(BurstCrypto.getInstance().isJceAesEnabled());
+            Assert.assertArrayEquals(message, BurstCrypto.getInstance().aesDecrypt(encrypted, sharedSecret, nonce));
+            encrypted = BurstCrypto.getInstance().aesEncrypt(message, sharedSecret, nonce);
+            BurstEncryptedMessage encryptedMessage = BurstCrypto.getInstance().encryptTextMessage("Test message", sharedSecret);
+            Assert.assertEquals("Test message", new String(BurstCrypto.getInstance().decryptMessage(encryptedMessage, sharedSecret), StandardCharsets.UTF_8));
+            BurstCrypto.getInstance().setJceAesEnabled(false);
+            Assert.assertArrayEquals(message, BurstCrypto.getInstance().aesDecrypt(encrypted, sharedSecret, nonce));
+            Assert.assertEquals("Test message", new String(BurstCrypto.getInstance().decryptMessage(encryptedMessage, sharedSecret), StandardCharsets.UTF_8));
+        } finally {
+            BurstCrypto.getInstance().setJceAesEnabled(false);
+        }
+    }
 }
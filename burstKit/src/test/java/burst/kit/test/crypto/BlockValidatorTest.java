@@ -0,0 +1,212 @@
+package burst.kit.test.crypto;
+
+import burst.kit.crypto.BlockValidator;
+import burst.kit.crypto.BurstCrypto;
+import burst.kit.entity.BurstAddress;
+import burst.kit.entity.BurstID;
+import burst.kit.entity.BurstTimestamp;
+import burst.kit.entity.BurstValue;
+import burst.kit.entity.response.Block;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Validates a synthetic chain of version 3 blocks, each signed by its generator, with the ID of each block
+ * being the hash of its bytes as a node would calculate it.
+ */
+@RunWith(JUnit4.class)
+public class BlockValidatorTest {
+    private static final BurstCrypto burstCrypto = BurstCrypto.getInstance();
+    private static final int CHAIN_LENGTH = 6;
+
+    @Test
+    public void testBlockValidatorValidChain() {
+        List<Block> chain = createChain();
+        List<Block> shuffled = new ArrayList<>(chain);
+        Collections.shuffle(shuffled, new Random(0));
+        BlockValidator.Result[] results = new BlockValidator().validate(shuffled.toArray(new Block[0]));
+        assertEquals(chain.size(), results.length);
+        for (int i = 0; i < results.length; i++) {
+            BlockValidator.Result result = results[i];
+            assertSame(shuffled.get(i), result.getBlock());
+            assertTrue(result.isIdValid());
+            assertTrue(result.isSignatureValid());
+            assertTrue(result.isSelfValid());
+            if (result.getBlock().getHeight() == 0) {
+                // The genesis block has nothing to link to
+                assertFalse(result.isLinked());
+                assertFalse(result.isChainValid());
+                assertFalse(result.isValid());
+            } else {
+                assertTrue(result.isLinked());
+                assertTrue(result.isGenerationSignatureValid());
+                assertTrue(result.isPreviousBlockValid());
+                assertTrue(result.isValid());
+            }
+        }
+    }
+
+    @Test
+    public void testBlockValidatorGenesisBlock() {
+        Block genesis = createChain().get(0);
+        BlockValidator.Result[] results = new BlockValidator().validate(new Block[]{genesis});
+        assertEquals(1, results.length);
+        assertTrue(results[0].isSelfValid());
+        assertFalse(results[0].isValid());
+    }
+
+    @Test
+    public void testBlockValidatorUnlinkedBlocksAreNotValid() {
+        List<Block> chain = createChain();
+        // Without block 2, block 3 cannot be chain checked, and nor can the oldest block
+        BlockValidator.Result[] results = new BlockValidator().validate(new Block[]{chain.get(1), chain.get(3), chain.get(4)});
+        assertTrue(results[0].isSelfValid());
+        assertFalse(results[0].isLinked());
+        assertFalse(results[0].isValid());
+        assertTrue(results[1].isSelfValid());
+        assertFalse(results[1].isLinked());
+        assertFalse(results[1].isValid());
+        assertTrue(results[2].isValid());
+    }
+
+    @Test
+    public void testBlockValidatorTamperedBlock() {
+        List<Block> chain = createChain();
+        Block original = chain.get(3);
+        // The nonce is changed after the block was signed
+        chain.set(3, new Block(original.getNonce().add(BigInteger.ONE), original.getGenerator(), original.getId(), null,
+                original.getPreviousBlock(), original.getTransactions(), original.getTimestamp(), BurstValue.ZERO,
+                original.getTotalAmount(), original.getTotalFee(), original.getGenerationSignature(), original.getGeneratorPublicKey(),
+                original.getPayloadHash(), original.getPreviousBlockHash(), original.getSignature(), original.getHeight(),
+                original.getPayloadLength(), 0, original.getVersion(), original.getBaseTarget()));
+        BlockValidator.Result[] results = new BlockValidator().validate(chain.toArray(new Block[0]));
+        assertFalse(results[3].isIdValid());
+        assertFalse(results[3].isSignatureValid());
+        assertFalse(results[3].isValid());
+        // The next block's previous block hash no longer matches
+        assertTrue(results[4].isSelfValid());
+        assertTrue(results[4].isGenerationSignatureValid());
+        assertFalse(results[4].isPreviousBlockValid());
+        assertFalse(results[4].isValid());
+        assertTrue(results[2].isValid());
+        assertTrue(results[5].isValid());
+    }
+
+    @Test
+    public void testBlockValidatorWrongGenerationSignature() {
+        List<Block> chain = createChain();
+        // Correctly signed by its generator, but not following from the previous block
+        byte[] generationSignature = chain.get(3).getGenerationSignature().clone();
+        generationSignature[0] ^= 1;
+        chain.set(3, createBlock(3, chain.get(2), "generator 3", generationSignature, "generator 3"));
+        BlockValidator.Result[] results = new BlockValidator().validate(chain.toArray(new Block[0]));
+        assertTrue(results[3].isSelfValid());
+        assertFalse(results[3].isGenerationSignatureValid());
+        assertTrue(results[3].isPreviousBlockValid());
+        assertFalse(results[3].isChainValid());
+        assertFalse(results[3].isValid());
+    }
+
+    @Test
+    public void testBlockValidatorWrongSigner() {
+        List<Block> chain = createChain();
+        chain.set(3, createBlock(3, chain.get(2), "generator 3", null, "someone else"));
+        BlockValidator.Result[] results = new BlockValidator().validate(chain.toArray(new Block[0]));
+        // The ID is the hash of the bytes as given, but the signature is not the generator's
+        assertTrue(results[3].isIdValid());
+        assertFalse(results[3].isSignatureValid());
+        assertFalse(results[3].isValid());
+    }
+
+    @Test
+    public void testBlockValidatorMissingFields() {
+        List<Block> chain = createChain();
+        Block original = chain.get(3);
+        chain.set(3, new Block(original.getNonce(), original.getGenerator(), original.getId(), null,
+                original.getPreviousBlock(), original.getTransactions(), original.getTimestamp(), BurstValue.ZERO,
+                original.getTotalAmount(), original.getTotalFee(), original.getGenerationSignature(), original.getGeneratorPublicKey(),
+                null, original.getPreviousBlockHash(), original.getSignature(), original.getHeight(),
+                original.getPayloadLength(), 0, original.getVersion(), original.getBaseTarget()));
+        // Only the block missing its payload hash fails, and the block after it cannot be linked to it
+        BlockValidator.Result[] results = new BlockValidator().validate(chain.toArray(new Block[0]));
+        assertFalse(results[3].isSelfValid());
+        assertFalse(results[3].isValid());
+        assertFalse(results[4].isPreviousBlockValid());
+        assertTrue(results[2].isValid());
+        assertTrue(results[5].isValid());
+    }
+
+    private static List<Block> createChain() {
+        List<Block> chain = new ArrayList<>();
+        for (int height = 0; height < CHAIN_LENGTH; height++) {
+            chain.add(createBlock(height, height == 0 ? null : chain.get(height - 1), "generator " + height, null, "generator " + height));
+        }
+        return chain;
+    }
+
+    /**
+     * @param generationSignature The generation signature, or null to calculate it from the previous block
+     * @param signer The passphrase to sign the block with, which is the generator's unless testing a wrong signature
+     */
+    private static Block createBlock(int height, Block previous, String generator, byte[] generationSignature, String signer) {
+        byte[] generatorPublicKey = burstCrypto.getPublicKey(generator);
+        BurstAddress generatorAddress = burstCrypto.getBurstAddressFromPassphrase(generator);
+        if (generationSignature == null) {
+            generationSignature = previous == null
+                    ? burstCrypto.getSha256().digest("genesis".getBytes(StandardCharsets.UTF_8))
+                    : burstCrypto.calculateGenerationSignature(previous.getGenerationSignature(), previous.getGenerator());
+        }
+        BurstID previousBlock = previous == null ? null : previous.getId();
+        byte[] previousBlockHash = previous == null ? null : burstCrypto.getSha256().digest(getBytes(previous, previous.getSignature()));
+        BigInteger nonce = BigInteger.valueOf(1000L * height);
+        BurstValue totalAmount = BurstValue.fromPlanck(100L * height);
+        BurstValue totalFee = BurstValue.fromPlanck(height);
+        byte[] payloadHash = burstCrypto.getSha256().digest(("payload " + height).getBytes(StandardCharsets.UTF_8));
+
+        Block unsigned = new Block(nonce, generatorAddress, null, null, previousBlock, new BurstID[0], new BurstTimestamp(240 * height),
+                BurstValue.ZERO, totalAmount, totalFee, generationSignature, generatorPublicKey, payloadHash, previousBlockHash,
+                new byte[0], height, 0, 0, 3, 0);
+        byte[] signature = burstCrypto.sign(getBytes(unsigned, new byte[0]), signer);
+        BurstID id = burstCrypto.hashToId(burstCrypto.getSha256().digest(getBytes(unsigned, signature)));
+        return new Block(nonce, generatorAddress, id, null, previousBlock, new BurstID[0], new BurstTimestamp(240 * height),
+                BurstValue.ZERO, totalAmount, totalFee, generationSignature, generatorPublicKey, payloadHash, previousBlockHash,
+                signature, height, 0, 0, 3, 0);
+    }
+
+    /* The bytes of a version 3 block as a node writes them */
+    private static byte[] getBytes(Block block, byte[] signature) {
+        byte[] previousBlockHash = block.getPreviousBlockHash() == null ? new byte[0] : block.getPreviousBlockHash();
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 4 + 8 + 8 + 4 + 32 + 32 + 32 + previousBlockHash.length + 8 + signature.length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(3);
+        buffer.putInt(block.getTimestamp().getTimestamp());
+        buffer.putLong(block.getPreviousBlock() == null ? 0 : block.getPreviousBlock().getSignedLongId());
+        buffer.putInt(0);
+        buffer.putLong(block.getTotalAmount().toPlanck().longValue());
+        buffer.putLong(block.getTotalFee().toPlanck().longValue());
+        buffer.putInt(0);
+        buffer.put(block.getPayloadHash());
+        buffer.put(block.getGeneratorPublicKey());
+        buffer.put(block.getGenerationSignature());
+        buffer.put(previousBlockHash);
+        buffer.putLong(block.getNonce().longValue());
+        buffer.put(signature);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+}
@@ -0,0 +1,68 @@
+package burst.kit.test.crypto.hash;
+
+import burst.kit.crypto.BurstCrypto;
+import burst.kit.crypto.hash.shabal.Shabal256Lanes;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+@RunWith(JUnit4.class)
+public class Shabal256LanesTest {
+    // Uneven lengths so that updates start and end in the middle of a block
+    private static final int[] updateLengths = {1, 63, 64, 65, 7, 200, 0, 31};
+
+    @Test
+    public void testShabal256LanesMatchesShabal256() {
+        for (int lanes : new int[]{1, 3, 16}) {
+            Random random = new Random(lanes);
+            int total = Arrays.stream(updateLengths).sum();
+            byte[][] inputs = new byte[lanes][total];
+            for (byte[] input : inputs) {
+                random.nextBytes(input);
+            }
+
+            Shabal256Lanes shabal256Lanes = new Shabal256Lanes(lanes);
+            // Hash twice to check that the engine is reset after a digest
+            for (int round = 0; round < 2; round++) {
+                int off = 0;
+                for (int length : updateLengths) {
+                    shabal256Lanes.update(inputs, off, length);
+                    off += length;
+                }
+                byte[][] digests = new byte[lanes][Shabal256Lanes.DIGEST_LENGTH];
+                shabal256Lanes.digest(digests, 0);
+                for (int l = 0; l < lanes; l++) {
+                    assertArrayEquals(shabal256(inputs[l]), digests[l]);
+                }
+            }
+
+            // The same again with the inputs strided through one array
+            int stride = total + 5;
+            byte[] strided = new byte[lanes * stride];
+            for (int l = 0; l < lanes; l++) {
+                System.arraycopy(inputs[l], 0, strided, l * stride, total);
+            }
+            int off = 0;
+            for (int length : updateLengths) {
+                shabal256Lanes.update(strided, off, stride, length);
+                off += length;
+            }
+            byte[] digests = new byte[lanes * Shabal256Lanes.DIGEST_LENGTH];
+            shabal256Lanes.digest(digests, 0, Shabal256Lanes.DIGEST_LENGTH);
+            for (int l = 0; l < lanes; l++) {
+                assertArrayEquals(shabal256(inputs[l]), Arrays.copyOfRange(digests, l * Shabal256Lanes.DIGEST_LENGTH, (l + 1) * Shabal256Lanes.DIGEST_LENGTH));
+            }
+        }
+    }
+
+    private static byte[] shabal256(byte[] input) {
+        MessageDigest shabal256 = BurstCrypto.getInstance().getShabal256();
+        return shabal256.digest(input);
+    }
+}
@@ -2,14 +2,33 @@ package burst.kit.test.crypto.plot;
 
 import burst.kit.crypto.BurstCrypto;
 import burst.kit.crypto.plot.PlotCalculator;
+import burst.kit.crypto.plot.impl.MiningPlot;
 import burst.kit.crypto.plot.impl.PlotCalculatorImpl;
+import burst.kit.test.TestVariables;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import static org.junit.Assert.assertEquals;
+
 @RunWith(JUnit4.class)
 public class PlotCalculatorImplTest extends PlotCalculatorTest {
     @Override
     protected PlotCalculator getPlotCalculator() {
         return new PlotCalculatorImpl(() -> BurstCrypto.getInstance().getShabal256());
     }
+
+    @Test
+    public void testPlotCalculatorImplCallerOwnedPlot() {
+        PlotCalculatorImpl plotCalculator = new PlotCalculatorImpl(() -> BurstCrypto.getInstance().getShabal256());
+        byte[] genSig = BurstCrypto.getInstance().parseHexString("6ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d0");
+        long accountId = TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId();
+        int scoop = plotCalculator.calculateScoop(genSig, 500000);
+        MiningPlot plot = new MiningPlot();
+        // The same plot can be reused for every nonce and PoC version
+        assertEquals(76595641219705L, plotCalculator.calculateDeadlineUnsigned(accountId, 0, genSig, scoop, 70312, 1, plot));
+        assertEquals(190678252334964L, plotCalculator.calculateDeadlineUnsigned(accountId, 0, genSig, scoop, 70312, 2, plot));
+        assertEquals("18324085073558450598", Long.toUnsignedString(plotCalculator.calculateHitUnsigned(accountId, 0, genSig, 0, 2, plot)));
+        assertEquals(plotCalculator.calculateHitUnsigned(accountId, 7, genSig, scoop, 2), plotCalculator.calculateHitUnsigned(accountId, 7, genSig, scoop, 2, plot));
+    }
 }
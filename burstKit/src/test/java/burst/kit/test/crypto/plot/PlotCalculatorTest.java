@@ -1,12 +1,18 @@
 package burst.kit.test.crypto.plot;
 
 import burst.kit.crypto.BurstCrypto;
+import burst.kit.crypto.plot.BestDeadline;
+import burst.kit.crypto.plot.HitCalculator;
 import burst.kit.crypto.plot.PlotCalculator;
 import burst.kit.test.TestVariables;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 
@@ -50,4 +56,72 @@ public abstract class PlotCalculatorTest {
         // Scoop data is the generation signature repeated - not intended to be actual scoop data for the purpose of this test. It is twice as long as the gensig as this is the expected scoop size.
         assertEquals(new BigInteger("16142911724569013009"), plotCalculator.calculateHit(TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId(), 0, exampleGenSig, BurstCrypto.getInstance().parseHexString("6ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d06ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d0")));
     }
+
+    @Test
+    public void testPlotCalculatorCalculateUnsigned() {
+        long accountId = TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId();
+        int scoop = plotCalculator.calculateScoop(exampleGenSig, exampleHeight);
+        assertEquals(76595641219705L, plotCalculator.calculateDeadlineUnsigned(accountId, 0, exampleGenSig, scoop, exampleBaseTarget, 1));
+        assertEquals(190678252334964L, plotCalculator.calculateDeadlineUnsigned(accountId, 0, exampleGenSig, scoop, exampleBaseTarget, 2));
+        assertEquals("11245277265433361116", Long.toUnsignedString(plotCalculator.calculateHitUnsigned(accountId, 0, exampleGenSig, 0, 1)));
+        assertEquals("18324085073558450598", Long.toUnsignedString(plotCalculator.calculateHitUnsigned(accountId, 0, exampleGenSig, 0, 2)));
+        assertEquals("16142911724569013009", Long.toUnsignedString(plotCalculator.calculateHitUnsigned(accountId, 0, exampleGenSig, BurstCrypto.getInstance().parseHexString("6ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d06ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d0"))));
+    }
+
+    @Test
+    public void testPlotCalculatorHitCalculator() {
+        HitCalculator hitCalculator = plotCalculator.getHitCalculator(exampleGenSig);
+        byte[] scoopData = BurstCrypto.getInstance().parseHexString("6ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d06ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d0");
+        // Calculate twice to check that the saved state is reused correctly
+        assertEquals(new BigInteger("16142911724569013009"), hitCalculator.calculateHit(scoopData));
+        assertEquals(new BigInteger("16142911724569013009"), hitCalculator.calculateHit(scoopData));
+        byte[] offsetScoopData = new byte[scoopData.length + 7];
+        System.arraycopy(scoopData, 0, offsetScoopData, 7, scoopData.length);
+        assertEquals(new BigInteger("16142911724569013009"), hitCalculator.calculateHit(offsetScoopData, 7));
+    }
+
+    @Test
+    public void testPlotCalculatorCalculateDeadlines() {
+        int scoopCount = 20; // Not a multiple of the lane count
+        Random random = new Random(1);
+        ByteBuffer scoops = ByteBuffer.allocateDirect(scoopCount * 64);
+        byte[] scoop = new byte[64];
+        BigInteger[] expected = new BigInteger[scoopCount];
+        int bestIndex = 0;
+        for (int i = 0; i < scoopCount; i++) {
+            random.nextBytes(scoop);
+            scoops.put(scoop);
+            expected[i] = plotCalculator.calculateHit(0, i, exampleGenSig, scoop).divide(BigInteger.valueOf(exampleBaseTarget));
+            if (expected[i].compareTo(expected[bestIndex]) < 0) bestIndex = i;
+        }
+        scoops.flip();
+
+        BestDeadline best = plotCalculator.calculateBestDeadline(scoops, 100, exampleGenSig, exampleBaseTarget);
+        assertEquals(100 + bestIndex, best.getNonce());
+        assertEquals(expected[bestIndex], new BigInteger(Long.toUnsignedString(best.getDeadline())));
+        assertEquals(0, scoops.position());
+
+        long maxDeadline = expected[bestIndex].longValue() + 1;
+        List<Long> nonces = new ArrayList<>();
+        plotCalculator.calculateDeadlines(scoops, 100, exampleGenSig, exampleBaseTarget, maxDeadline, (nonce, deadline) -> nonces.add(nonce));
+        List<Long> expectedNonces = new ArrayList<>();
+        for (int i = 0; i < scoopCount; i++) {
+            if (expected[i].compareTo(BigInteger.valueOf(maxDeadline)) <= 0) expectedNonces.add(100L + i);
+        }
+        assertEquals(expectedNonces, nonces);
+    }
+
+    @Test
+    public void testPlotCalculatorCalculateHits() {
+        for (int pocVersion = 1; pocVersion <= 2; pocVersion++) {
+            for (int nonceCount : new int[]{1, 3}) {
+                BigInteger[] hits = plotCalculator.calculateHits(TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId(), 0, nonceCount, exampleGenSig, 0, pocVersion);
+                assertEquals(nonceCount, hits.length);
+                for (int i = 0; i < hits.length; i++) {
+                    assertEquals(plotCalculator.calculateHit(TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId(), i, exampleGenSig, 0, pocVersion), hits[i]);
+                }
+            }
+        }
+        assertEquals(0, plotCalculator.calculateHits(TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId(), 0, 0, exampleGenSig, 0, 2).length);
+    }
 }
@@ -0,0 +1,181 @@
+package burst.kit.test.crypto.plot;
+
+import burst.kit.crypto.plot.PlotCatalogue;
+import burst.kit.crypto.plot.PlotFile;
+import burst.kit.crypto.plot.PlotScanResult;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class PlotCatalogueTest {
+    @Test
+    public void testPlotCatalogue() throws IOException {
+        Path fast = Files.createTempDirectory("burstkit4j");
+        Path slow = Files.createTempDirectory("burstkit4j");
+        Path index = Files.createTempFile("burstkit4j", ".index");
+        PlotFile first = new PlotFile(1, 0, 10);
+        PlotFile overlapping = new PlotFile(1, 5, 10);
+        PlotFile otherAccount = new PlotFile(2, 0, 10);
+        PlotFile incomplete = new PlotFile(1, 100, 10);
+        createFile(fast.resolve(first.getFileName()), first.getSize());
+        createFile(fast.resolve(otherAccount.getFileName()), otherAccount.getSize());
+        createFile(slow.resolve(overlapping.getFileName()), overlapping.getSize());
+        createFile(slow.resolve(incomplete.getFileName()), incomplete.getSize() - 1);
+        createFile(slow.resolve("not_a_plot"), 1);
+        // Directories modified within the timestamp resolution of being listed are always listed again
+        FileTime past = FileTime.fromMillis(System.currentTimeMillis() - 10000);
+        Files.setLastModifiedTime(fast, past);
+        Files.setLastModifiedTime(slow, past);
+        try {
+            PlotCatalogue catalogue = new PlotCatalogue(Arrays.asList(fast, slow));
+            assertTrue(catalogue.refresh());
+            assertFalse(catalogue.refresh());
+            assertEquals(4, catalogue.getEntries().size());
+            assertEquals(3, catalogue.getCompleteEntries().size());
+            assertEquals(incomplete, catalogue.getIncompleteEntries().get(0).getPlotFile());
+
+            List<PlotCatalogue.Overlap> overlaps = catalogue.findOverlaps();
+            assertEquals(1, overlaps.size());
+            assertEquals(first, overlaps.get(0).getFirst().getPlotFile());
+            assertEquals(overlapping, overlaps.get(0).getSecond().getPlotFile());
+
+            // A plot file that is written in place does not modify its directory, so incomplete files are checked
+            Path incompletePath = slow.resolve(incomplete.getFileName());
+            createFile(incompletePath, incomplete.getSize());
+            Files.setLastModifiedTime(incompletePath, FileTime.fromMillis(past.toMillis() + 1000));
+            Files.setLastModifiedTime(slow, past);
+            assertTrue(catalogue.refresh());
+            assertFalse(catalogue.refresh());
+            assertEquals(4, catalogue.getCompleteEntries().size());
+            // Complete files are only checked when asked to
+            createFile(incompletePath, incomplete.getSize() - 1);
+            Files.setLastModifiedTime(incompletePath, FileTime.fromMillis(past.toMillis() + 1000));
+            Files.setLastModifiedTime(slow, past);
+            assertFalse(catalogue.refresh());
+            assertEquals(4, catalogue.getCompleteEntries().size());
+            assertTrue(catalogue.refresh(true));
+            assertEquals(3, catalogue.getCompleteEntries().size());
+
+            // A directory modified just now is listed again until its modified time is old enough to be trusted
+            Files.setLastModifiedTime(fast, FileTime.fromMillis(System.currentTimeMillis()));
+            assertTrue(catalogue.refresh());
+            assertTrue(catalogue.refresh());
+            Files.setLastModifiedTime(fast, past);
+            assertTrue(catalogue.refresh());
+            assertFalse(catalogue.refresh());
+
+            catalogue.recordScan(new PlotScanResult(fast.resolve(first.getFileName()), first, 0, 0, 1000));
+            catalogue.recordScan(new PlotScanResult(fast.resolve(otherAccount.getFileName()), otherAccount, 0, 0, 1000));
+            catalogue.recordScan(new PlotScanResult(slow.resolve(overlapping.getFileName()), overlapping, 0, 0, 10000));
+            assertEquals(Collections.singletonList(slow), catalogue.getSlowDirectories(0.5));
+
+            catalogue.save(index);
+            PlotCatalogue loaded = PlotCatalogue.load(index);
+            assertFalse(loaded.refresh());
+            assertEquals(catalogue.getEntries().size(), loaded.getEntries().size());
+            assertEquals(1, loaded.findOverlaps().size());
+            assertEquals(Collections.singletonList(slow), loaded.getSlowDirectories(0.5));
+        } finally {
+            deleteDirectory(fast);
+            deleteDirectory(slow);
+            Files.deleteIfExists(index);
+        }
+    }
+
+    @Test
+    public void testPlotCatalogueNestedOverlaps() throws IOException {
+        Path directory = Files.createTempDirectory("burstkit4j");
+        PlotFile outer = new PlotFile(1, 0, 100);
+        PlotFile inner1 = new PlotFile(1, 10, 10);
+        PlotFile inner2 = new PlotFile(1, 15, 15);
+        PlotFile after = new PlotFile(1, 100, 10);
+        try {
+            for (PlotFile plotFile : Arrays.asList(outer, inner1, inner2, after)) {
+                createFile(directory.resolve(plotFile.getFileName()), plotFile.getSize());
+            }
+            PlotCatalogue catalogue = new PlotCatalogue(Collections.singletonList(directory));
+            catalogue.refresh();
+            List<PlotCatalogue.Overlap> overlaps = catalogue.findOverlaps();
+            assertEquals(3, overlaps.size());
+            assertEquals(outer, overlaps.get(0).getFirst().getPlotFile());
+            assertEquals(inner1, overlaps.get(0).getSecond().getPlotFile());
+            assertEquals(outer, overlaps.get(1).getFirst().getPlotFile());
+            assertEquals(inner2, overlaps.get(1).getSecond().getPlotFile());
+            // The inner files overlap each other even though neither reaches as far as the outer file
+            assertEquals(inner1, overlaps.get(2).getFirst().getPlotFile());
+            assertEquals(inner2, overlaps.get(2).getSecond().getPlotFile());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testPlotCatalogueMissingDirectory() throws IOException {
+        Path present = Files.createTempDirectory("burstkit4j");
+        Path missing = Files.createTempDirectory("burstkit4j");
+        PlotFile first = new PlotFile(1, 0, 10);
+        PlotFile second = new PlotFile(1, 10, 10);
+        Path secondPath = missing.resolve(second.getFileName());
+        createFile(present.resolve(first.getFileName()), first.getSize());
+        createFile(secondPath, second.getSize());
+        FileTime past = FileTime.fromMillis(System.currentTimeMillis() - 10000);
+        Files.setLastModifiedTime(present, past);
+        Files.setLastModifiedTime(missing, past);
+        try {
+            PlotCatalogue catalogue = new PlotCatalogue(Arrays.asList(present, missing));
+            assertTrue(catalogue.refresh());
+            assertEquals(2, catalogue.getCompleteEntries().size());
+
+            // Such as a drive that has been unmounted
+            Files.delete(secondPath);
+            Files.delete(missing);
+            assertTrue(catalogue.refresh());
+            assertFalse(catalogue.refresh());
+            assertEquals(2, catalogue.getEntries().size());
+            assertEquals(1, catalogue.getCompleteEntries().size());
+            assertEquals(first, catalogue.getCompleteEntries().get(0).getPlotFile());
+            assertEquals(second, catalogue.getIncompleteEntries().get(0).getPlotFile());
+
+            // Once it is back it is listed again
+            Files.createDirectory(missing);
+            createFile(secondPath, second.getSize());
+            assertTrue(catalogue.refresh());
+            assertEquals(2, catalogue.getCompleteEntries().size());
+        } finally {
+            deleteDirectory(present);
+            if (Files.exists(missing)) {
+                deleteDirectory(missing);
+            }
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static void createFile(Path path, long size) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(size);
+        }
+    }
+}
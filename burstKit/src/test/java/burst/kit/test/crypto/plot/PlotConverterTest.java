@@ -0,0 +1,74 @@
+package burst.kit.test.crypto.plot;
+
+import burst.kit.crypto.BurstCrypto;
+import burst.kit.crypto.plot.PlotConverter;
+import burst.kit.crypto.plot.PlotFile;
+import burst.kit.crypto.plot.PlotWriter;
+import burst.kit.crypto.plot.impl.MiningPlot;
+import burst.kit.test.TestVariables;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+@RunWith(JUnit4.class)
+public class PlotConverterTest {
+    private static final long accountId = TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId();
+    private static final int nonces = 2;
+
+    private static byte[] writePoc1Plot(int stagger) {
+        byte[] data = new byte[nonces * MiningPlot.PLOT_SIZE];
+        for (int nonce = 0; nonce < nonces; nonce++) {
+            MiningPlot plot = new MiningPlot(() -> BurstCrypto.getInstance().getShabal256(), accountId, nonce, 1);
+            int groupOffset = nonce / stagger * stagger * MiningPlot.PLOT_SIZE;
+            for (int scoop = 0; scoop < MiningPlot.SCOOPS_PER_PLOT; scoop++) {
+                plot.getScoop(scoop, data, groupOffset + (scoop * stagger + nonce % stagger) * MiningPlot.SCOOP_SIZE);
+            }
+        }
+        return data;
+    }
+
+    @Test
+    public void testPlotConverterConvert() throws IOException {
+        Path directory = Files.createTempDirectory("burstkit4j");
+        try {
+            PlotFile plotFile = new PlotFile(accountId, 0, nonces);
+            Path expectedDirectory = Files.createDirectory(directory.resolve("expected"));
+            new PlotWriter().writePlot(expectedDirectory, plotFile);
+            byte[] expected = Files.readAllBytes(expectedDirectory.resolve(plotFile.getFileName()));
+
+            // Unoptimized, converted into another directory
+            Path unoptimized = directory.resolve(plotFile.getFileName() + "_1");
+            Files.write(unoptimized, writePoc1Plot(1));
+            Path target = Files.createDirectory(directory.resolve("converted"));
+            assertEquals(plotFile, new PlotConverter().convert(unoptimized, target));
+            assertArrayEquals(expected, Files.readAllBytes(target.resolve(plotFile.getFileName())));
+
+            // Optimized, converted in place
+            Path optimized = directory.resolve(plotFile.getFileName() + "_" + nonces);
+            Files.write(optimized, writePoc1Plot(nonces));
+            assertEquals(plotFile, new PlotConverter().convertInPlace(optimized));
+            assertFalse(Files.exists(optimized));
+            assertArrayEquals(expected, Files.readAllBytes(directory.resolve(plotFile.getFileName())));
+
+            // Interrupted after renaming, leaving the journal under the PoC1 name
+            Path journal = directory.resolve(optimized.getFileName() + ".journal");
+            Files.write(journal, new byte[32]);
+            assertEquals(plotFile, new PlotConverter().convertInPlace(optimized));
+            assertFalse(Files.exists(journal));
+            assertArrayEquals(expected, Files.readAllBytes(directory.resolve(plotFile.getFileName())));
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package burst.kit.test.crypto.plot;
+
+import burst.kit.crypto.BurstCrypto;
+import burst.kit.crypto.plot.AsyncPlotFileScanner;
+import burst.kit.crypto.plot.PlotCalculator;
+import burst.kit.crypto.plot.PlotFile;
+import burst.kit.crypto.plot.PlotFileScanner;
+import burst.kit.crypto.plot.PlotScanResult;
+import burst.kit.crypto.plot.PlotWriter;
+import burst.kit.crypto.plot.impl.PlotCalculatorImpl;
+import burst.kit.entity.response.MiningInfo;
+import burst.kit.test.TestVariables;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class PlotFileScannerTest {
+    @Test
+    public void testPlotFileScannerScan() throws IOException {
+        PlotCalculator plotCalculator = new PlotCalculatorImpl(() -> BurstCrypto.getInstance().getShabal256());
+        long accountId = TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId();
+        PlotFile plotFile = new PlotFile(accountId, 0, 3);
+        MiningInfo miningInfo = new MiningInfo(BurstCrypto.getInstance().parseHexString("6ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d0"), 70312, 500000);
+        int scoop = plotCalculator.calculateScoop(miningInfo.getGenerationSignature(), miningInfo.getHeight());
+
+        Path directory = Files.createTempDirectory("burstkit4j");
+        Path path = directory.resolve(plotFile.getFileName());
+        try (PlotFileScanner scanner = new PlotFileScanner(plotCalculator, Collections.singletonList(directory))) {
+            new PlotWriter().writePlot(directory, plotFile);
+            List<PlotScanResult> results = scanner.scan(miningInfo);
+            assertEquals(1, results.size());
+            long bestNonce = 0;
+            for (long nonce = 1; nonce < 3; nonce++) {
+                if (plotCalculator.calculateDeadlineUnsigned(accountId, nonce, miningInfo.getGenerationSignature(), scoop, miningInfo.getBaseTarget(), 2)
+                        < plotCalculator.calculateDeadlineUnsigned(accountId, bestNonce, miningInfo.getGenerationSignature(), scoop, miningInfo.getBaseTarget(), 2)) {
+                    bestNonce = nonce;
+                }
+            }
+            assertEquals(plotFile, results.get(0).getPlotFile());
+            assertEquals(bestNonce, results.get(0).getNonce());
+            assertEquals(plotCalculator.calculateDeadlineUnsigned(accountId, bestNonce, miningInfo.getGenerationSignature(), scoop, miningInfo.getBaseTarget(), 2), results.get(0).getDeadline());
+
+            // Reads of 2 scoops at a time, so that the file takes several reads
+            try (PlotFileScanner asyncScanner = new AsyncPlotFileScanner(plotCalculator, Collections.singletonList(directory), 128, 2)) {
+                List<PlotScanResult> asyncResults = asyncScanner.scan(miningInfo);
+                assertEquals(1, asyncResults.size());
+                assertEquals(bestNonce, asyncResults.get(0).getNonce());
+                assertEquals(results.get(0).getDeadline(), asyncResults.get(0).getDeadline());
+                // The second scan reuses the read buffers of the first
+                asyncResults = asyncScanner.scan(miningInfo);
+                assertEquals(1, asyncResults.size());
+                assertEquals(bestNonce, asyncResults.get(0).getNonce());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package burst.kit.test.crypto.plot;
+
+import burst.kit.crypto.BurstCrypto;
+import burst.kit.crypto.plot.PlotFile;
+import burst.kit.crypto.plot.PlotWriter;
+import burst.kit.crypto.plot.impl.MiningPlot;
+import burst.kit.test.TestVariables;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class PlotWriterTest {
+    @Test
+    public void testPlotFileName() {
+        PlotFile plotFile = new PlotFile(TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId(), 1000, 20);
+        assertEquals(TestVariables.EXAMPLE_ACCOUNT_ID.getID() + "_1000_20", plotFile.getFileName());
+        assertEquals(plotFile, PlotFile.parse(plotFile.getFileName()));
+    }
+
+    @Test
+    public void testPlotWriterWritePlot() throws IOException {
+        long accountId = TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId();
+        PlotFile plotFile = new PlotFile(accountId, 1000, 3);
+        Path directory = Files.createTempDirectory("burstkit4j");
+        Path path = directory.resolve(plotFile.getFileName());
+        try {
+            // Chunks of 2 nonces so that more than one chunk is written
+            new PlotWriter(ForkJoinPool.commonPool(), 2).writePlot(directory, plotFile);
+            byte[] written = Files.readAllBytes(path);
+            assertEquals(plotFile.getSize(), written.length);
+            for (int nonce = 0; nonce < 3; nonce++) {
+                MiningPlot plot = new MiningPlot(() -> BurstCrypto.getInstance().getShabal256(), accountId, 1000 + nonce, 2);
+                for (int scoop : new int[]{0, 1, 2048, 4095}) {
+                    int offset = (int) plotFile.getScoopOffset(scoop) + nonce * MiningPlot.SCOOP_SIZE;
+                    assertArrayEquals(plot.getScoop(scoop), Arrays.copyOfRange(written, offset, offset + MiningPlot.SCOOP_SIZE));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package burst.kit.test.mining;
+
+import burst.kit.crypto.BurstCrypto;
+import burst.kit.crypto.plot.MiningRoundContext;
+import burst.kit.crypto.plot.PlotFile;
+import burst.kit.crypto.plot.PlotFileScanner;
+import burst.kit.crypto.plot.PlotScanResult;
+import burst.kit.crypto.plot.impl.PlotCalculatorImpl;
+import burst.kit.entity.BurstID;
+import burst.kit.entity.response.MiningInfo;
+import burst.kit.mining.Miner;
+import burst.kit.mining.MiningSubmission;
+import burst.kit.service.BurstNodeService;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.SingleSubject;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class MinerTest {
+    private static final long ACCOUNT_A = 1;
+    private static final long ACCOUNT_B = 2;
+
+    @Test
+    public void testMinerSwitchesRounds() throws InterruptedException {
+        PublishSubject<MiningInfo> miningInfo = PublishSubject.create();
+        StubNodeService nodeService = new StubNodeService(miningInfo);
+        CountDownLatch firstRoundInterrupted = new CountDownLatch(1);
+        StubScanner scanner = new StubScanner((round, listener) -> {
+            if (round.getHeight() == 1) {
+                listener.accept(result(ACCOUNT_A, 10, 500));
+                // Scan until the next block interrupts this round
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    firstRoundInterrupted.countDown();
+                    throw new InterruptedIOException();
+                }
+            } else {
+                // A worse deadline than the first round's, which must still be submitted in the new round
+                listener.accept(result(ACCOUNT_A, 20, 1000));
+            }
+        });
+        TestSubscriber<MiningSubmission> subscriber = new Miner(nodeService.toBurstNodeService(), scanner).mine().test();
+        try {
+            miningInfo.onNext(miningInfo(1));
+            subscriber.awaitCount(1);
+            assertEquals(1, subscriber.valueCount());
+            miningInfo.onNext(miningInfo(2));
+            subscriber.awaitCount(2);
+            subscriber.assertNoErrors();
+            assertTrue(firstRoundInterrupted.await(5, TimeUnit.SECONDS));
+            assertEquals(2, subscriber.valueCount());
+            assertEquals(1, subscriber.values().get(0).getHeight());
+            assertEquals(10, subscriber.values().get(0).getNonce());
+            assertEquals(2, subscriber.values().get(1).getHeight());
+            assertEquals(20, subscriber.values().get(1).getNonce());
+        } finally {
+            subscriber.dispose();
+            scanner.close();
+        }
+    }
+
+    @Test
+    public void testMinerMaxDeadline() {
+        PublishSubject<MiningInfo> miningInfo = PublishSubject.create();
+        StubNodeService nodeService = new StubNodeService(miningInfo);
+        StubScanner scanner = new StubScanner((round, listener) -> {
+            listener.accept(result(ACCOUNT_A, 10, 150));
+            listener.accept(result(ACCOUNT_A, 11, 100));
+            listener.accept(result(ACCOUNT_A, 12, 90));
+        });
+        TestSubscriber<MiningSubmission> subscriber = new Miner(nodeService.toBurstNodeService(), scanner, null, 100, error -> {}).mine().test();
+        try {
+            miningInfo.onNext(miningInfo(1));
+            subscriber.awaitCount(2);
+            subscriber.assertNoErrors();
+            assertEquals(2, subscriber.valueCount());
+            assertEquals(11, subscriber.values().get(0).getNonce());
+            assertEquals(12, subscriber.values().get(1).getNonce());
+            assertEquals(2, nodeService.submittedNonces.size());
+        } finally {
+            subscriber.dispose();
+            scanner.close();
+        }
+    }
+
+    @Test
+    public void testMinerBestDeadlinePerAccount() {
+        PublishSubject<MiningInfo> miningInfo = PublishSubject.create();
+        StubNodeService nodeService = new StubNodeService(miningInfo);
+        StubScanner scanner = new StubScanner((round, listener) -> {
+            listener.accept(result(ACCOUNT_A, 10, 100));
+            listener.accept(result(ACCOUNT_A, 11, 120));
+            listener.accept(result(ACCOUNT_B, 20, 200));
+            listener.accept(result(ACCOUNT_A, 12, 90));
+            listener.accept(result(ACCOUNT_B, 21, 200));
+        });
+        TestSubscriber<MiningSubmission> subscriber = new Miner(nodeService.toBurstNodeService(), scanner).mine().test();
+        try {
+            miningInfo.onNext(miningInfo(1));
+            subscriber.awaitCount(3);
+            subscriber.assertNoErrors();
+            assertEquals(3, subscriber.valueCount());
+            List<Long> nonces = new ArrayList<>(nodeService.submittedNonces);
+            Collections.sort(nonces);
+            assertEquals(listOf(10, 12, 20), nonces);
+        } finally {
+            subscriber.dispose();
+            scanner.close();
+        }
+    }
+
+    @Test
+    public void testMinerKeepsLatestImprovementOfEachAccount() {
+        PublishSubject<MiningInfo> miningInfo = PublishSubject.create();
+        StubNodeService nodeService = new StubNodeService(miningInfo);
+        // Account A's first submission does not complete until released
+        SingleSubject<Long> slowSubmission = SingleSubject.create();
+        nodeService.pendingSubmissions.put(10L, slowSubmission);
+        StubScanner scanner = new StubScanner((round, listener) -> {
+            listener.accept(result(ACCOUNT_A, 10, 300));
+            listener.accept(result(ACCOUNT_A, 11, 200));
+            listener.accept(result(ACCOUNT_A, 12, 100));
+            listener.accept(result(ACCOUNT_B, 20, 250));
+        });
+        TestSubscriber<MiningSubmission> subscriber = new Miner(nodeService.toBurstNodeService(), scanner).mine().test();
+        try {
+            miningInfo.onNext(miningInfo(1));
+            // Account B is not held up by account A's submission in flight. By then account A's later results have been emitted.
+            subscriber.awaitCount(1);
+            assertEquals(20, subscriber.values().get(0).getNonce());
+            slowSubmission.onSuccess(300L);
+            subscriber.awaitCount(3);
+            subscriber.assertNoErrors();
+            // Only account A's latest improvement is submitted after its submission in flight
+            assertEquals(listOf(10, 20, 12), new ArrayList<>(nodeService.submittedNonces));
+        } finally {
+            subscriber.dispose();
+            scanner.close();
+        }
+    }
+
+    @Test
+    public void testMinerRetriesMiningInfo() {
+        StubNodeService nodeService = new StubNodeService(Observable.just(miningInfo(1)));
+        nodeService.miningInfoFailures = 1;
+        StubScanner scanner = new StubScanner((round, listener) -> listener.accept(result(ACCOUNT_A, 10, 100)));
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        TestSubscriber<MiningSubmission> subscriber = new Miner(nodeService.toBurstNodeService(), scanner, null, -1, errors::add).mine().test();
+        try {
+            // The first attempt fails, and the retry gets the mining info after a delay
+            subscriber.awaitCount(1);
+            subscriber.assertNoErrors();
+            assertEquals(1, subscriber.valueCount());
+            assertEquals(1, errors.size());
+        } finally {
+            subscriber.dispose();
+            scanner.close();
+        }
+    }
+
+    private static List<Long> listOf(long... values) {
+        List<Long> list = new ArrayList<>();
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static MiningInfo miningInfo(long height) {
+        byte[] genSig = new byte[32];
+        genSig[0] = (byte) height;
+        return new MiningInfo(genSig, 70312, height);
+    }
+
+    private static PlotScanResult result(long accountId, long nonce, long deadline) {
+        return new PlotScanResult(Paths.get("plots"), new PlotFile(accountId, 0, 1000), nonce, deadline, 0);
+    }
+
+    private interface ScanFunction {
+        void scan(MiningRoundContext round, Consumer<PlotScanResult> listener) throws IOException;
+    }
+
+    private static class StubScanner extends PlotFileScanner {
+        private final ScanFunction scanFunction;
+
+        private StubScanner(ScanFunction scanFunction) {
+            super(new PlotCalculatorImpl(() -> BurstCrypto.getInstance().getShabal256()), Collections.singletonList(Paths.get("plots")));
+            this.scanFunction = scanFunction;
+        }
+
+        @Override
+        public List<PlotScanResult> scan(MiningRoundContext round, Consumer<PlotScanResult> listener) throws IOException {
+            scanFunction.scan(round, listener);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Only implements getting mining info and submitting nonces
+     */
+    private static class StubNodeService {
+        private final Observable<MiningInfo> miningInfo;
+        private final Queue<Long> submittedNonces = new ConcurrentLinkedQueue<>();
+        private final Map<Long, Single<Long>> pendingSubmissions = new ConcurrentHashMap<>();
+        private volatile int miningInfoFailures;
+
+        private StubNodeService(Observable<MiningInfo> miningInfo) {
+            this.miningInfo = miningInfo;
+        }
+
+        private Observable<MiningInfo> getMiningInfo() {
+            if (miningInfoFailures > 0) {
+                miningInfoFailures--;
+                return Observable.error(new IOException("Node unreachable"));
+            }
+            return miningInfo;
+        }
+
+        private Single<Long> submitNonce(String nonce, BurstID accountId) {
+            long parsedNonce = Long.parseUnsignedLong(nonce);
+            submittedNonces.add(parsedNonce);
+            Single<Long> pending = pendingSubmissions.get(parsedNonce);
+            return pending != null ? pending : Single.just(parsedNonce);
+        }
+
+        private BurstNodeService toBurstNodeService() {
+            return (BurstNodeService) Proxy.newProxyInstance(BurstNodeService.class.getClassLoader(), new Class<?>[]{BurstNodeService.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getMiningInfo":
+                        return getMiningInfo();
+                    case "submitNonce":
+                        return submitNonce((String) args[1], (BurstID) args[2]);
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+        }
+    }
+}
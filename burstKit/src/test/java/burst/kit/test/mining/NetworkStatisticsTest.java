@@ -0,0 +1,98 @@
+package burst.kit.test.mining;
+
+import burst.kit.crypto.plot.impl.MiningPlot;
+import burst.kit.mining.NetworkStatistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(JUnit4.class)
+public class NetworkStatisticsTest {
+    private static final double TWO_POW_64 = 0x1p64;
+    private static final long exampleBaseTarget = 70312;
+
+    @Test
+    public void testNetworkStatisticsEmpty() {
+        NetworkStatistics statistics = new NetworkStatistics();
+        assertEquals(0, statistics.getBlockCount());
+        assertEquals(-1, statistics.getLastHeight());
+        assertEquals(0, statistics.getEstimatedNetworkNonces(), 0);
+        assertEquals(0, statistics.getEstimatedNetworkCapacity(), 0);
+        assertEquals(0, statistics.getWinProbability(1000), 0);
+        assertEquals(NetworkStatistics.TARGET_BLOCK_TIME, statistics.getAverageBlockTime(), 0);
+    }
+
+    @Test
+    public void testNetworkStatisticsConstantBaseTarget() {
+        NetworkStatistics statistics = new NetworkStatistics(10);
+        addBlocks(statistics, 1, 100, 200, exampleBaseTarget, exampleBaseTarget);
+        double expectedNonces = TWO_POW_64 / (exampleBaseTarget * (double) NetworkStatistics.TARGET_BLOCK_TIME);
+        assertEquals(100, statistics.getBlockCount());
+        assertEquals(100, statistics.getLastHeight());
+        assertEquals(exampleBaseTarget, statistics.getLastBaseTarget());
+        assertEquals(exampleBaseTarget, statistics.getAverageBaseTarget(), 1e-6);
+        assertEquals(expectedNonces, statistics.getEstimatedNetworkNonces(), expectedNonces * 1e-9);
+        assertEquals(expectedNonces * MiningPlot.PLOT_SIZE, statistics.getEstimatedNetworkCapacity(), expectedNonces * MiningPlot.PLOT_SIZE * 1e-9);
+        assertEquals(200, statistics.getAverageBlockTime(), 1e-3);
+        // A plot the size of the rest of the network wins half of the blocks
+        assertEquals(0.5, statistics.getWinProbability((long) expectedNonces), 1e-6);
+    }
+
+    @Test
+    public void testNetworkStatisticsAveragesInverseBaseTarget() {
+        NetworkStatistics statistics = new NetworkStatistics();
+        // The base target alternates between two values, so the capacity alternates between two values
+        addBlocks(statistics, 1, 4000, NetworkStatistics.TARGET_BLOCK_TIME, exampleBaseTarget, 3 * exampleBaseTarget);
+        double capacity1 = TWO_POW_64 / (exampleBaseTarget * (double) NetworkStatistics.TARGET_BLOCK_TIME);
+        double capacity2 = TWO_POW_64 / (3 * exampleBaseTarget * (double) NetworkStatistics.TARGET_BLOCK_TIME);
+        double expectedNonces = (capacity1 + capacity2) / 2;
+        assertEquals(expectedNonces, statistics.getEstimatedNetworkNonces(), expectedNonces * 0.01);
+        // The average base target itself is still the arithmetic mean
+        assertEquals(2 * exampleBaseTarget, statistics.getAverageBaseTarget(), 2 * exampleBaseTarget * 0.01);
+    }
+
+    @Test
+    public void testNetworkStatisticsIgnoresOldBlocksAndGaps() {
+        NetworkStatistics statistics = new NetworkStatistics(10);
+        addBlocks(statistics, 1, 100, 200, exampleBaseTarget, exampleBaseTarget);
+        // Blocks at or below the last height are ignored
+        statistics.update(50, 0, 1);
+        statistics.update(100, 0, 1);
+        assertEquals(100, statistics.getBlockCount());
+        assertEquals(exampleBaseTarget, statistics.getLastBaseTarget());
+        // The time across a gap in heights is not counted as a block time
+        statistics.update(200, 100 * 200 + 100000, exampleBaseTarget);
+        assertEquals(101, statistics.getBlockCount());
+        assertEquals(200, statistics.getLastHeight());
+        assertEquals(200, statistics.getAverageBlockTime(), 1e-3);
+    }
+
+    @Test
+    public void testNetworkStatisticsDeadlines() {
+        long nonces = 1000000;
+        double expectedDeadline = TWO_POW_64 / ((double) exampleBaseTarget * (nonces + 1));
+        assertEquals(expectedDeadline, NetworkStatistics.getExpectedDeadline(nonces, exampleBaseTarget), expectedDeadline * 1e-9);
+        assertEquals(0, NetworkStatistics.getDeadlineProbability(nonces, 0, exampleBaseTarget), 0);
+        // The best deadline is exponentially distributed, so is below its mean with probability 1 - 1/e
+        long meanDeadline = (long) (TWO_POW_64 / ((double) exampleBaseTarget * nonces));
+        assertEquals(1 - Math.exp(-1), NetworkStatistics.getDeadlineProbability(nonces, meanDeadline, exampleBaseTarget), 1e-6);
+        assertEquals(1 - Math.exp(-1), NetworkStatistics.getImprovementProbability(meanDeadline, nonces, exampleBaseTarget), 1e-6);
+
+        NetworkStatistics statistics = new NetworkStatistics();
+        addBlocks(statistics, 1, 10, NetworkStatistics.TARGET_BLOCK_TIME, exampleBaseTarget, exampleBaseTarget);
+        // The network's best deadline averages the target block time, so it is beaten with probability 1/e
+        assertEquals(Math.exp(-1), statistics.getWinProbability(NetworkStatistics.TARGET_BLOCK_TIME, exampleBaseTarget), 1e-6);
+    }
+
+    /**
+     * Add consecutive blocks with a constant block time, alternating between two base targets
+     */
+    private static void addBlocks(NetworkStatistics statistics, long firstHeight, int count, int blockTime, long baseTarget1, long baseTarget2) {
+        for (int i = 0; i < count; i++) {
+            long height = firstHeight + i;
+            statistics.update(height, (int) height * blockTime, i % 2 == 0 ? baseTarget1 : baseTarget2);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package burst.kit.test.mining;
+
+import burst.kit.crypto.BurstCrypto;
+import burst.kit.crypto.plot.PlotCalculator;
+import burst.kit.crypto.plot.impl.PlotCalculatorImpl;
+import burst.kit.entity.response.MiningInfo;
+import burst.kit.mining.NonceVerifier;
+import burst.kit.mining.VerifiedDeadline;
+import burst.kit.test.TestVariables;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class NonceVerifierTest {
+    private static final byte[] exampleGenSig = BurstCrypto.getInstance().parseHexString("6ec823b5fd86c4aee9f7c3453cacaf4a43296f48ede77e70060ca8225c2855d0");
+    private static final long exampleBaseTarget = 70312;
+    private static final int exampleHeight = 500000;
+    private static final long accountId = TestVariables.EXAMPLE_ACCOUNT_ID.getSignedLongId();
+    // The PoC1 deadline of nonce 0 at the example block, from PlotCalculatorTest
+    private static final long poc1Deadline = 76595641219705L;
+
+    @Test
+    public void testNonceVerifierRejectsWhenQueueFull() throws InterruptedException {
+        BlockingPlotCalculator plotCalculator = new BlockingPlotCalculator();
+        try (NonceVerifier nonceVerifier = new NonceVerifier(plotCalculator, 1, 1)) {
+            nonceVerifier.setMiningInfo(new MiningInfo(exampleGenSig, exampleBaseTarget, exampleHeight));
+            assertTrue(nonceVerifier.submit(accountId, 0, 300));
+            // The only worker is now busy, so the next submission fills the queue
+            assertTrue(plotCalculator.started.await(5, TimeUnit.SECONDS));
+            assertTrue(nonceVerifier.submit(accountId, 1, 200));
+            assertFalse(nonceVerifier.submit(accountId, 2, 100));
+            // Repeating a submission that is already queued is also turned away
+            assertFalse(nonceVerifier.submit(accountId, 1, 200));
+            plotCalculator.release.countDown();
+        }
+    }
+
+    @Test
+    public void testNonceVerifierClearsQueueOnNewBlock() throws InterruptedException {
+        BlockingPlotCalculator plotCalculator = new BlockingPlotCalculator();
+        try (NonceVerifier nonceVerifier = new NonceVerifier(plotCalculator, 1, 1)) {
+            nonceVerifier.setMiningInfo(new MiningInfo(exampleGenSig, exampleBaseTarget, exampleHeight));
+            assertTrue(nonceVerifier.submit(accountId, 0, 300));
+            assertTrue(plotCalculator.started.await(5, TimeUnit.SECONDS));
+            assertTrue(nonceVerifier.submit(accountId, 1, 200));
+            assertFalse(nonceVerifier.submit(accountId, 2, 100));
+
+            // The same block again keeps the queued work
+            nonceVerifier.setMiningInfo(new MiningInfo(exampleGenSig.clone(), exampleBaseTarget, exampleHeight));
+            assertFalse(nonceVerifier.submit(accountId, 2, 100));
+
+            // A reorganization to another block at the same height discards it
+            byte[] otherGenSig = exampleGenSig.clone();
+            otherGenSig[0] ^= 1;
+            nonceVerifier.setMiningInfo(new MiningInfo(otherGenSig, exampleBaseTarget, exampleHeight));
+            assertTrue(nonceVerifier.submit(accountId, 2, 100));
+
+            // So does a new height
+            nonceVerifier.setMiningInfo(new MiningInfo(otherGenSig, exampleBaseTarget, exampleHeight + 1));
+            assertTrue(nonceVerifier.submit(accountId, 2, 100));
+            plotCalculator.release.countDown();
+        }
+    }
+
+    @Test
+    public void testNonceVerifierRejectsFalseDeadline() {
+        PlotCalculator plotCalculator = new PlotCalculatorImpl(() -> BurstCrypto.getInstance().getShabal256());
+        int scoop = plotCalculator.calculateScoop(exampleGenSig, exampleHeight);
+        long nonce1Deadline = plotCalculator.calculateDeadlineUnsigned(accountId, 1, exampleGenSig, scoop, exampleBaseTarget, 2);
+        try (NonceVerifier nonceVerifier = new NonceVerifier(plotCalculator, 1, 10)) {
+            TestSubscriber<VerifiedDeadline> subscriber = nonceVerifier.getBestDeadlines().test();
+            nonceVerifier.setMiningInfo(new MiningInfo(exampleGenSig, exampleBaseTarget, exampleHeight));
+            // Nonce 0's PoC1 deadline is a false claim for PoC2
+            assertTrue(nonceVerifier.submit(accountId, 0, poc1Deadline));
+            assertTrue(nonceVerifier.submit(accountId, 1, nonce1Deadline));
+            // Submissions are verified in order on the only worker, so nonce 0 has been checked by now
+            subscriber.awaitCount(1);
+            subscriber.assertNoErrors();
+            assertEquals(1, subscriber.valueCount());
+            assertEquals(1, subscriber.values().get(0).getNonce());
+            assertEquals(nonce1Deadline, subscriber.values().get(0).getDeadline());
+        }
+    }
+
+    @Test
+    public void testNonceVerifierPocVersion() {
+        PlotCalculator plotCalculator = new PlotCalculatorImpl(() -> BurstCrypto.getInstance().getShabal256());
+        try (NonceVerifier nonceVerifier = new NonceVerifier(plotCalculator, 1, 10, 1)) {
+            TestSubscriber<VerifiedDeadline> subscriber = nonceVerifier.getBestDeadlines().test();
+            nonceVerifier.setMiningInfo(new MiningInfo(exampleGenSig, exampleBaseTarget, exampleHeight));
+            // The PoC1 deadline that a PoC2 verifier rejects
+            assertTrue(nonceVerifier.submit(accountId, 0, poc1Deadline));
+            subscriber.awaitCount(1);
+            subscriber.assertNoErrors();
+            assertEquals(1, subscriber.valueCount());
+            assertEquals(poc1Deadline, subscriber.values().get(0).getDeadline());
+        }
+    }
+
+    /**
+     * Blocks every verification until released
+     */
+    private static class BlockingPlotCalculator extends PlotCalculatorImpl {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private BlockingPlotCalculator() {
+            super(() -> BurstCrypto.getInstance().getShabal256());
+        }
+
+        @Override
+        public long calculateDeadlineUnsigned(long accountId, long nonce, byte[] genSig, int scoop, long baseTarget, int pocVersion) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        }
+    }
+}